@@ -11,9 +11,16 @@ public class Constants {
 
     public static final String VERSION_PATTERN_DEF = PatternStrategy.VERSION_PATTERN_DEF;
 
+    public static final String DIRTY_CHECK_DEF = "tracked";
+
     public static final String GITTLE = "gittle";
     public static final String NEW_VERSION = "newVersion";
     public static final String RELEASE_BRANCHES = "releaseBranches";
     public static final String TAG_NAME_PATTERN = "tagNamePattern";
     public static final String VERSION_PATTERN = "versionPattern";
+    public static final String DIRTY_CHECK = "dirtyCheck";
+    public static final String DIRTY_CHECK_THREADS = "dirtyCheckThreads";
+    public static final String FIRST_PARENT = "firstParent";
+    public static final String MAX_COMMITS = "maxCommits";
+    public static final String WALK_TIMEOUT = "walkTimeout";
 }
@@ -1,18 +1,16 @@
 package org.emergent.maven.gitver.core;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonDeserializationContext;
-import com.google.gson.JsonDeserializer;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonParseException;
-import com.google.gson.JsonSerializationContext;
-import com.google.gson.JsonSerializer;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import lombok.NonNull;
 import lombok.Value;
 
-import java.lang.reflect.Type;
+import java.io.IOException;
 import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 @Value
@@ -33,34 +31,74 @@ public class FlatProperties {
         return new FlatProperties(props);
     }
 
-    public static class GsonAdapter implements
-//            InstanceCreator<PatternStrategy>,
-            JsonSerializer<FlatProperties>,
-            JsonDeserializer<FlatProperties>
-    {
-        private static final Map<String, String> NAME_REPL_MAP = Map.of("config", "gittle");
-        private static final Map<String, String> REPL_NAME_MAP = Util.getReversed(NAME_REPL_MAP);
-        private static final String STANDARD_PREFIX = "gittle_resolved_";
-        private static final String VERSION_STRING = "versionString";
+    /**
+     * Writes the properties as nested JSON and reads nested JSON back into dotted keys, streaming
+     * through the reader and writer rather than building a JSON tree.
+     */
+    public static class GsonAdapter extends TypeAdapter<FlatProperties> {
 
-        private final Gson gson = GsonUtil.getGsonBuilder(Map.of(FlatProperties.class, new GsonAdapter())).create();
+        @Override
+        public void write(JsonWriter out, FlatProperties src) throws IOException {
+            if (src == null) {
+                out.nullValue();
+                return;
+            }
+            writeValue(out, PropCodec.rebuild(src.properties));
+        }
 
-//        @Override
-//        public PatternStrategy createInstance(Type type) {
-//            return PatternStrategy.create();
-//        }
+        private static void writeValue(JsonWriter out, Object value) throws IOException {
+            if (value instanceof Map<?, ?> map) {
+                out.beginObject();
+                for (Map.Entry<?, ?> e : map.entrySet()) {
+                    out.name(String.valueOf(e.getKey()));
+                    writeValue(out, e.getValue());
+                }
+                out.endObject();
+            } else if (value instanceof List<?> list) {
+                out.beginArray();
+                for (Object element : list) {
+                    writeValue(out, element);
+                }
+                out.endArray();
+            } else if (value == null) {
+                out.nullValue();
+            } else {
+                out.value(String.valueOf(value));
+            }
+        }
 
         @Override
-        public JsonElement serialize(FlatProperties src, Type type, JsonSerializationContext ctx) {
-            JsonElement flatEl = gson.toJsonTree(src.properties, GsonUtil.STR_STR_MAP_TT.getType());
-            return PropCodec.rebuild(flatEl);
+        public FlatProperties read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Map<String, String> props = new LinkedHashMap<>();
+            readValue(in, "", props);
+            return from(props);
         }
 
-        @Override
-        public FlatProperties deserialize(JsonElement json, Type type, JsonDeserializationContext ctx)
-                throws JsonParseException {
-            JsonElement flatEl = PropCodec.flatten(json);
-            return from(gson.fromJson(flatEl, GsonUtil.STR_STR_MAP_TT.getType()));
+        private static void readValue(JsonReader in, String key, Map<String, String> props) throws IOException {
+            String prefix = key.isEmpty() ? "" : key + ".";
+            switch (in.peek()) {
+                case BEGIN_OBJECT -> {
+                    in.beginObject();
+                    while (in.hasNext()) {
+                        readValue(in, prefix + in.nextName(), props);
+                    }
+                    in.endObject();
+                }
+                case BEGIN_ARRAY -> {
+                    in.beginArray();
+                    for (int ii = 1; in.hasNext(); ii++) {
+                        readValue(in, prefix + ii, props);
+                    }
+                    in.endArray();
+                }
+                case NULL -> in.nextNull();
+                case BOOLEAN -> props.put(key, String.valueOf(in.nextBoolean()));
+                default -> props.put(key, in.nextString());
+            }
         }
     }
 }
@@ -7,6 +7,7 @@ import lombok.Value;
 import lombok.experimental.NonFinal;
 import lombok.experimental.SuperBuilder;
 import org.eclipse.jgit.api.Git;
+import org.emergent.maven.gitver.core.git.DirtyCheck;
 
 import java.util.Arrays;
 import java.util.Map;
@@ -15,6 +16,7 @@ import java.util.Set;
 import java.util.TreeSet;
 import java.util.stream.Collectors;
 
+import static org.emergent.maven.gitver.core.Constants.DIRTY_CHECK_DEF;
 import static org.emergent.maven.gitver.core.Constants.RELEASE_BRANCHES_DEF;
 import static org.emergent.maven.gitver.core.Constants.TAG_PATTERN_DEF;
 import static org.emergent.maven.gitver.core.Constants.VERSION_PATTERN_DEF;
@@ -43,6 +45,33 @@ public class GitverConfig {
     @lombok.Builder.Default
     String versionPattern = VERSION_PATTERN_DEF;
 
+    @lombok.Builder.Default
+    String dirtyCheck = DIRTY_CHECK_DEF;
+
+    /**
+     * Threads used by the parallel dirty check, where zero means one per available processor.
+     */
+    @lombok.Builder.Default
+    int dirtyCheckThreads = 0;
+
+    /**
+     * Follows only the first parent of merges when looking for the tag and counting commits.
+     */
+    @lombok.Builder.Default
+    boolean firstParent = false;
+
+    /**
+     * Commits a history walk may visit before giving up, where zero means no limit.
+     */
+    @lombok.Builder.Default
+    int maxCommits = 0;
+
+    /**
+     * Milliseconds a history walk may take before giving up, where zero means no limit.
+     */
+    @lombok.Builder.Default
+    int walkTimeout = 0;
+
     public Map<String, String> asMap() {
         return PropCodec.toProperties(this).getProperties();
     }
@@ -52,4 +81,8 @@ public class GitverConfig {
         return Arrays.stream(branchesString.split(","))
                 .map(String::trim).collect(Collectors.toCollection(TreeSet::new));
     }
+
+    public DirtyCheck getDirtyCheckMode() {
+        return DirtyCheck.from(Optional.ofNullable(dirtyCheck).orElse(DIRTY_CHECK_DEF));
+    }
 }
@@ -1,66 +1,76 @@
 package org.emergent.maven.gitver.core;
 
 import com.google.gson.Gson;
-import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
 import lombok.extern.java.Log;
 import org.codehaus.plexus.util.xml.Xpp3Dom;
 import org.emergent.maven.gitver.core.version.OverrideStrategy;
 import org.emergent.maven.gitver.core.version.PatternStrategy;
 import org.emergent.maven.gitver.core.version.ResolvedData;
 
-import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
-import java.lang.reflect.Type;
-import java.util.Arrays;
-import java.util.Collection;
-import java.util.Comparator;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
-import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.function.Supplier;
-import java.util.stream.IntStream;
+import java.util.function.Consumer;
 
 import static org.emergent.maven.gitver.core.GsonUtil.STR_OBJ_MAP_TT;
-import static org.emergent.maven.gitver.core.GsonUtil.STR_STR_MAP_TT;
 
+/**
+ * Converts the configuration and resolution types to and from flat, prefixed property maps.
+ * <p>
+ * The typed conversions are written out per field, going straight from getters to a sorted map and
+ * from a map to the builders, with fields at their default value left out.
+ * <p>
+ * Arbitrary maps are flattened to dotted keys, with list elements numbered from 1, and rebuilt from
+ * them, each in a single pass over the entries.
+ */
 @Log
 public class PropCodec {
 
-    private static final Map<Type, Map<String, String>> defCache = new ConcurrentHashMap<>();
-    private static final Map<Class<?>, String> prefixMap = Map.of(
-            GitverConfig.class, "gittle.",
-            ResolvedData.class, "gittle.resolved."
-    );
+    private static final String CONFIG_PREFIX = Constants.GITTLE_PREFIX;
+    private static final String RESOLVED_PREFIX = CONFIG_PREFIX + "resolved.";
+
+    private static final String BASE_PATH = "basePath";
+    private static final String BRANCH = "branch";
+    private static final String HASH = "hash";
+    private static final String TAGGED = "tagged";
+    private static final String COMMITS = "commits";
+    private static final String DIRTY = "dirty";
+    private static final String UNRESOLVED = "unresolved";
+    private static final String WALK_BUDGET_EXCEEDED = "walkBudgetExceeded";
+    private static final String VERSION = "version";
+
+    private static final Map<Class<?>, Map<String, String>> defCache = new ConcurrentHashMap<>();
 
     private static final Gson rawGson = GsonUtil.getGsonBuilder(Map.of()).create();
 
     public static GitverConfig toGitverConfig(FlatProperties src) {
-        return fromProperties(src, GitverConfig.class);
+        return decodeConfig(GitverConfig.builder(), getFields(src, CONFIG_PREFIX)).build();
     }
 
     public static ResolvedData toResolvedData(FlatProperties src) {
-        return fromProperties(src, ResolvedData.class);
+        Map<String, String> fields = getFields(src, RESOLVED_PREFIX);
+        return decodeResolved(decodeConfig(ResolvedData.builder(), fields), fields).build();
     }
 
+    /**
+     * The version is derived from the other fields, so it is recalculated rather than read back.
+     */
     public static PatternStrategy toPatternStrategy(FlatProperties src) {
-        return fromProperties(src, PatternStrategy.class);
+        Map<String, String> fields = getFields(src, RESOLVED_PREFIX);
+        return decodeResolved(decodeConfig(PatternStrategy.builder(), fields), fields).build();
     }
 
     public static OverrideStrategy toOverrideStrategy(FlatProperties src) {
-        return fromProperties(src, OverrideStrategy.class);
+        return decodeConfig(OverrideStrategy.builder(), getFields(src, CONFIG_PREFIX)).build();
     }
 
     public static Map<String, Object> toMap(FlatProperties src) {
-        return fromPropertiesx(src, STR_OBJ_MAP_TT.getType());
+        return rebuild(src.getProperties());
     }
 
     public static FlatProperties toProperties(GitverConfig src) {
@@ -80,13 +90,11 @@ public class PropCodec {
     }
 
     public static FlatProperties toProperties(Map<String, ?> src) {
-        return toProperties(src, STR_OBJ_MAP_TT.getType());
+        return FlatProperties.from(flatten(src));
     }
 
     public static Xpp3Dom toXml(GitverConfig src) {
-        JsonElement json = toJsonTree(src, GitverConfig.class);
-        Map<String, Object> map = fromJsonTree(json, STR_OBJ_MAP_TT.getType());
-        return toXml("configuration", map);
+        return toXml("configuration", encodeConfig(src, new LinkedHashMap<>()));
     }
 
     private static Xpp3Dom toXml(String name, Object value) {
@@ -107,246 +115,222 @@ public class PropCodec {
                 .toList();
     }
 
-    private static <V> V fromProperties(FlatProperties in, Class<?> clazz) {
-        LinkedHashMap<String, String> originals = in.getProperties();
-
-        Optional<String> prefix = getPrefix(clazz);
-
-        Map<String, String> rekeyed = prefix.map(p -> Util.removePrefix(p, originals)).orElse(originals);
-
-        JsonElement json = toJsonTree(rekeyed);
-        return fromJsonTree(json, clazz);
-    }
-
-    private static <V> V fromProperties(Map<String, String> in, Type type) {
-        return fromPropertiesx(FlatProperties.from(in), type);
-    }
-
-    private static <V> V fromPropertiesx(FlatProperties in, Type type) {
-        LinkedHashMap<String, String> originals = in.getProperties();
-        JsonElement json = toJsonTree(originals);
-        return fromJsonTree(json, type);
-    }
-
-    private static FlatProperties toProperties0(Object src) {
-        Class<?> clazz = src.getClass();
-
-        FlatProperties properties = toProperties(src, clazz);
-        Map<String, String> map = properties.getProperties();
-
-        getDefaultProperties(clazz).forEach((k, v) -> {
-            if (v != null && v.equals(map.get(k))) {
-                map.remove(k);
+    private static FlatProperties toProperties0(GitverConfig src) {
+        Map<String, String> fields = encode(src);
+        getDefaultProperties(src.getClass()).forEach((k, v) -> {
+            if (v.equals(fields.get(k))) {
+                fields.remove(k);
             }
         });
-
-        Map<String, String> rekeyed = getPrefix(clazz).map(p -> Util.appendPrefix(p, map)).orElse(map);
-
-        return FlatProperties.from(new TreeMap<>(rekeyed));
-    }
-
-    private static Optional<String> getPrefix(Class<?> clazz) {
-        return prefixMap.entrySet().stream()
-                .filter(e -> e.getKey().isAssignableFrom(clazz))
-                .sorted(Comparator.comparing(e -> calculateDistance(e.getKey(), clazz)))
-                .map(Map.Entry::getValue)
-                .findFirst();
+        String prefix = src instanceof ResolvedData ? RESOLVED_PREFIX : CONFIG_PREFIX;
+        Map<String, String> sorted = new TreeMap<>();
+        fields.forEach((k, v) -> sorted.put(prefix + k, v));
+        return FlatProperties.from(sorted);
     }
 
     private static Map<String, String> getDefaultProperties(Class<?> clazz) {
         return defCache.computeIfAbsent(clazz, c -> {
-            try {
-                Optional<Method> initMethod = Arrays.stream(clazz.getMethods())
-                        .filter(m -> "newInstance".equals(m.getName()))
-                        .filter(m -> m.getParameterCount() == 0)
-                        .filter(m -> Modifier.isPublic(m.getModifiers()))
-                        .filter(m -> Modifier.isStatic(m.getModifiers()))
-                        .findFirst();
-
-                Object inst = initMethod.isPresent()
-                        ? initMethod.get().invoke(null)
-                        : clazz.getDeclaredConstructor().newInstance();
-
-                FlatProperties props = toProperties(inst, clazz);
-                return props.getProperties();
-            } catch (ReflectiveOperationException e) {
-                throw new RuntimeException(e);
+            GitverConfig inst;
+            if (PatternStrategy.class.isAssignableFrom(c)) {
+                inst = PatternStrategy.newInstance();
+            } else if (ResolvedData.class.isAssignableFrom(c)) {
+                inst = ResolvedData.builder().build();
+            } else if (OverrideStrategy.class.isAssignableFrom(c)) {
+                inst = OverrideStrategy.builder().build();
+            } else {
+                inst = GitverConfig.builder().build();
             }
+            return Map.copyOf(encode(inst));
         });
     }
 
-    private static FlatProperties toProperties(Object src, Type type) {
-        JsonElement flattened = flatten(toJsonTree(src, type));
-        Map<String, String> map = rawGson.fromJson(flattened, STR_STR_MAP_TT.getType());
-        return FlatProperties.from(map);
-    }
-
-    public static Map<String, Object> toMap(JsonElement json) {
-        return fromJsonTree(json, STR_OBJ_MAP_TT.getType());
-    }
-
-    public static <V> V fromJsonTree(JsonElement json, Type type) {
-        if (hasFlattenedKeys(json)) {
-            json = rebuild(json);
+    private static Map<String, String> encode(GitverConfig src) {
+        Map<String, String> fields = encodeConfig(src, new LinkedHashMap<>());
+        if (src instanceof ResolvedData resolved) {
+            put(fields, BRANCH, resolved.getBranch());
+            put(fields, HASH, resolved.getHash());
+            put(fields, TAGGED, resolved.getTagged());
+            put(fields, COMMITS, resolved.getCommits());
+            put(fields, DIRTY, resolved.isDirty());
+            put(fields, UNRESOLVED, resolved.getUnresolved());
+            put(fields, WALK_BUDGET_EXCEEDED, resolved.isWalkBudgetExceeded());
         }
-        return rawGson.fromJson(json, type);
-    }
-
-    public static JsonElement toJsonTree(Map<String, ?> in) {
-        return rawGson.toJsonTree(in, STR_OBJ_MAP_TT.getType());
-    }
-
-    private static JsonElement toJsonTree(Object in, Type type) {
-        return rawGson.toJsonTree(in, type);
-    }
-
-    public static boolean hasFlattenedKeys(JsonElement json) {
-        if (json.isJsonObject()) {
-            JsonObject obj = json.getAsJsonObject();
-            return obj.keySet().stream().anyMatch(key -> key.contains("."));
+        if (src instanceof PatternStrategy strategy) {
+            put(fields, VERSION, strategy.getVersion());
+        }
+        return fields;
+    }
+
+    private static Map<String, String> encodeConfig(GitverConfig src, Map<String, String> fields) {
+        put(fields, BASE_PATH, src.getBasePath());
+        put(fields, Constants.NEW_VERSION, src.getNewVersion());
+        put(fields, Constants.RELEASE_BRANCHES, src.getReleaseBranches());
+        put(fields, Constants.TAG_NAME_PATTERN, src.getTagNamePattern());
+        put(fields, Constants.VERSION_PATTERN, src.getVersionPattern());
+        put(fields, Constants.DIRTY_CHECK, src.getDirtyCheck());
+        put(fields, Constants.DIRTY_CHECK_THREADS, src.getDirtyCheckThreads());
+        put(fields, Constants.FIRST_PARENT, src.isFirstParent());
+        put(fields, Constants.MAX_COMMITS, src.getMaxCommits());
+        put(fields, Constants.WALK_TIMEOUT, src.getWalkTimeout());
+        return fields;
+    }
+
+    private static void put(Map<String, String> fields, String name, Object value) {
+        if (value != null) {
+            fields.put(name, String.valueOf(value));
         }
-        return false;
     }
 
-    public static boolean hasContainerValues(JsonElement json) {
-        if (json.isJsonNull() || json.isJsonPrimitive()) {
-            return false;
+    /**
+     * Returns the values keyed by field name. Keys may carry the prefix or not, and a prefixed key
+     * wins over an unprefixed one.
+     */
+    private static Map<String, String> getFields(FlatProperties src, String prefix) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        src.getProperties().forEach((k, v) -> {
+            if (!k.startsWith(prefix)) {
+                fields.put(k, v);
+            }
+        });
+        src.getProperties().forEach((k, v) -> {
+            if (k.startsWith(prefix)) {
+                fields.put(k.substring(prefix.length()), v);
+            }
+        });
+        return fields;
+    }
+
+    private static <B extends GitverConfig.GitverConfigBuilder<?, ?>> B decodeConfig(B builder, Map<String, String> fields) {
+        ifPresent(fields, BASE_PATH, builder::basePath);
+        ifPresent(fields, Constants.NEW_VERSION, builder::newVersion);
+        ifPresent(fields, Constants.RELEASE_BRANCHES, builder::releaseBranches);
+        ifPresent(fields, Constants.TAG_NAME_PATTERN, builder::tagNamePattern);
+        ifPresent(fields, Constants.VERSION_PATTERN, builder::versionPattern);
+        ifPresent(fields, Constants.DIRTY_CHECK, builder::dirtyCheck);
+        ifPresent(fields, Constants.DIRTY_CHECK_THREADS, v -> builder.dirtyCheckThreads(toInt(Constants.DIRTY_CHECK_THREADS, v)));
+        ifPresent(fields, Constants.FIRST_PARENT, v -> builder.firstParent(Boolean.parseBoolean(v)));
+        ifPresent(fields, Constants.MAX_COMMITS, v -> builder.maxCommits(toInt(Constants.MAX_COMMITS, v)));
+        ifPresent(fields, Constants.WALK_TIMEOUT, v -> builder.walkTimeout(toInt(Constants.WALK_TIMEOUT, v)));
+        return builder;
+    }
+
+    private static <B extends ResolvedData.ResolvedDataBuilder<?, ?>> B decodeResolved(B builder, Map<String, String> fields) {
+        ifPresent(fields, BRANCH, builder::branch);
+        ifPresent(fields, HASH, builder::hash);
+        ifPresent(fields, TAGGED, builder::tagged);
+        ifPresent(fields, COMMITS, v -> builder.commits(toInt(COMMITS, v)));
+        ifPresent(fields, DIRTY, v -> builder.dirty(Boolean.parseBoolean(v)));
+        ifPresent(fields, UNRESOLVED, builder::unresolved);
+        ifPresent(fields, WALK_BUDGET_EXCEEDED, v -> builder.walkBudgetExceeded(Boolean.parseBoolean(v)));
+        return builder;
+    }
+
+    private static void ifPresent(Map<String, String> fields, String name, Consumer<String> setter) {
+        String value = fields.get(name);
+        if (value != null) {
+            setter.accept(value);
         }
-        Collection<JsonElement> children = json.isJsonArray()
-                ? json.getAsJsonArray().asList()
-                : json.getAsJsonObject().asMap().values();
-        return children.stream().anyMatch(c -> c.isJsonArray() || c.isJsonObject());
     }
 
-    public static JsonElement flatten(JsonElement src) {
-        if (src.isJsonArray()) return flattenValues(src.getAsJsonArray());
-        if (src.isJsonObject()) return flattenValues(src.getAsJsonObject());
-        return src;
+    private static int toInt(String name, String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new GitverException(String.format("Invalid %s '%s', expected a number", name, value), e);
+        }
     }
 
-    public static JsonObject flattenValues(JsonArray src) {
-        return flattenValues(new JsonObject(), "", src);
+    public static Map<String, Object> toMap(JsonElement json) {
+        return rebuild(rawGson.fromJson(json, STR_OBJ_MAP_TT.getType()));
     }
 
-    public static JsonObject flattenValues(JsonObject src) {
-        if (!hasContainerValues(src)) return src;
-        return flattenValues(new JsonObject(), "", src);
+    public static JsonElement toJsonTree(Map<String, ?> in) {
+        return rawGson.toJsonTree(in, STR_OBJ_MAP_TT.getType());
     }
 
-    private static JsonObject flattenValues(JsonObject dst, String key, JsonElement in) {
-        if (in.isJsonPrimitive()) {
-            dst.add(key, in);
-        }
-        String subkeyPrefix = key.isEmpty() ? "" : key + ".";
-        if (in.isJsonObject()) {
-            in.getAsJsonObject().asMap().forEach((k, v) -> flattenValues(dst, subkeyPrefix + k, v));
-        }
-        if (in.isJsonArray()) {
-            AtomicInteger ii = new AtomicInteger();
-            in.getAsJsonArray().forEach(v -> flattenValues(dst, subkeyPrefix + ii.incrementAndGet(), v));
-        }
+    /**
+     * Flattens nested maps and collections into dotted keys, numbering collection elements from 1.
+     * Null values are left out.
+     */
+    public static Map<String, String> flatten(Map<String, ?> src) {
+        Map<String, String> dst = new LinkedHashMap<>();
+        src.forEach((k, v) -> flatten(dst, k, v));
         return dst;
     }
 
-    public static JsonElement rebuild(JsonElement in) {
-        return rebuild(in, true);
-    }
-
-    public static JsonElement rebuild(JsonElement in, boolean rebuildArrays) {
-        if (hasFlattenedKeys(in)) {
-            return rebuildValues(new JsonObject(), rebuildArrays, in.getAsJsonObject());
+    private static void flatten(Map<String, String> dst, String key, Object value) {
+        if (value == null) {
+            return;
         }
-        if (rebuildArrays && in.isJsonObject()) {
-            JsonObject src = in.getAsJsonObject();
-            Set<String> arrayKeys = getArrayRebuildKeys(src);
-            if (!arrayKeys.isEmpty()) {
-                return rebuildArrayValues(src.deepCopy(), arrayKeys);
+        if (value instanceof Map<?, ?> map) {
+            map.forEach((k, v) -> flatten(dst, key + "." + k, v));
+        } else if (value instanceof Iterable<?> iterable) {
+            int index = 0;
+            for (Object element : iterable) {
+                flatten(dst, key + "." + ++index, element);
             }
+        } else if (value instanceof CharSequence || value instanceof Number
+                || value instanceof Boolean || value instanceof Character) {
+            dst.put(key, value.toString());
+        } else {
+            // anything else is flattened the way Gson would serialize it
+            flatten(dst, key, rawGson.fromJson(rawGson.toJsonTree(value), Object.class));
         }
-        return in;
-    }
-
-    private static JsonObject rebuildValues(JsonObject dst, boolean rebuildArrays, JsonObject src) {
-        src.keySet().stream().filter(key -> !key.contains(".")).forEach(key -> dst.add(key, src.get(key)));
-
-        Map<String, JsonObject> rebuiltObjs = new LinkedHashMap<>();
-        src.keySet().stream().filter(key -> key.contains(".")).forEach(key -> {
-            String groupKey = Util.substringBefore(key, ".");
-            JsonObject groupObj = rebuiltObjs.computeIfAbsent(groupKey, gk -> new JsonObject());
-            String valueKey = Util.substringAfter(key, ".");
-            groupObj.add(valueKey, rebuild(src.get(key), rebuildArrays));
-        });
-        rebuiltObjs.forEach(dst::add);
-
-        if (rebuildArrays) {
-            Set<String> arrayKeys = getArrayRebuildKeys(dst);
-            rebuildArrayValues(dst, arrayKeys);
-        }
-
-        return dst;
     }
 
-    private static Set<String> getArrayRebuildKeys(JsonObject obj) {
-        // Everything has been migrated from 'in' to 'dst' so we're using 'dst' as both source
-        // and target for transforms after this point.  Note the toList() before forEach is to
-        // avoid a ConcurrentModificationException.
-        Set<String> arrayCandidateKeys = new LinkedHashSet<>();
-        obj.keySet().stream().filter(k -> obj.get(k).isJsonObject()).toList().forEach(groupKey -> {
-            JsonObject groupObj = obj.getAsJsonObject(groupKey);
-            List<String> orderedKeys = IntStream.range(1, groupObj.size() + 1).mapToObj(String::valueOf).toList();
-            if (orderedKeys.stream().allMatch(groupObj::has)) {
-                arrayCandidateKeys.add(groupKey);
+    /**
+     * Rebuilds nested maps from dotted keys. Maps whose keys are exactly {@code 1..n} become lists, at
+     * any depth. Where a key is both a value and a prefix of other keys, the nested map wins.
+     */
+    public static Map<String, Object> rebuild(Map<String, ?> src) {
+        Map<String, Object> root = new LinkedHashMap<>();
+        src.forEach((key, value) -> {
+            Map<String, Object> parent = root;
+            int start = 0;
+            for (int dot = key.indexOf('.'); dot >= 0; dot = key.indexOf('.', start)) {
+                String segment = key.substring(start, dot);
+                parent = getChildMap(parent, segment);
+                start = dot + 1;
+            }
+            String leaf = key.substring(start);
+            if (!(parent.get(leaf) instanceof Map)) {
+                parent.put(leaf, value);
             }
         });
-        return arrayCandidateKeys;
+        root.replaceAll((k, v) -> toListsAt(v));
+        return root;
     }
 
-    private static JsonObject rebuildArrayValues(JsonObject obj, Set<String> arrayCandidateKeys) {
-        arrayCandidateKeys.forEach(groupKey -> {
-            JsonObject groupObj = obj.getAsJsonObject(groupKey);
-            JsonArray arr = new JsonArray();
-            groupObj.keySet().stream().map(groupObj::get).forEachOrdered(arr::add);
-            obj.add(groupKey, arr);
-        });
-        return obj;
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> getChildMap(Map<String, Object> parent, String segment) {
+        Object child = parent.get(segment);
+        if (child instanceof Map) {
+            return (Map<String, Object>) child;
+        }
+        Map<String, Object> created = new LinkedHashMap<>();
+        parent.put(segment, created);
+        return created;
     }
 
-
-    /**
-     * Calculates the distance (number of inheritance levels) from the
-     * implementation class to the base class.
-     *
-     * @param baseClass The base class to find in the hierarchy.
-     * @param implClass The implementation class.
-     * @return The distance as an integer, or -1 if the implClass
-     * does not inherit from the baseClass.
-     */
-    public static int calculateDistance(Class<?> baseClass, Class<?> implClass) {
-        // Handle invalid inputs.
-        if (implClass == null || baseClass == null) {
-            throw new IllegalArgumentException("Input classes cannot be null.");
+    @SuppressWarnings("unchecked")
+    private static Object toListsAt(Object value) {
+        if (!(value instanceof Map)) {
+            return value;
         }
-
-        // Check if the implClass is the baseClass itself.
-        if (Objects.equals(implClass, baseClass)) {
-            return 0;
+        Map<String, Object> map = (Map<String, Object>) value;
+        map.replaceAll((k, v) -> toListsAt(v));
+        if (map.isEmpty()) {
+            return map;
         }
-
-        int distance = 0;
-        Class<?> currentClass = implClass;
-
-        // Loop up the inheritance tree until a match is found or the top is reached.
-        while (currentClass != null && !Objects.equals(currentClass, baseClass)) {
-            currentClass = currentClass.getSuperclass();
-            distance++;
+        for (int ii = 1; ii <= map.size(); ii++) {
+            if (!map.containsKey(String.valueOf(ii))) {
+                return map;
+            }
         }
-
-        // If currentClass is null, the baseClass was not found in the hierarchy.
-        if (currentClass == null) {
-            return -1;
+        List<Object> list = new ArrayList<>(map.size());
+        for (int ii = 1; ii <= map.size(); ii++) {
+            list.add(map.get(String.valueOf(ii)));
         }
-
-        return distance;
+        return list;
     }
-
 }
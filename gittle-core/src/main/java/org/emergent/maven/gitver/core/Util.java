@@ -33,12 +33,23 @@ public class Util {
     public static final String DISABLED_ENV_VAR = "GV_EXTENSION_DISABLED";
     public static final String DISABLED_SYSPROP = "gittle.extension.disabled";
 
+    public static final String CACHE_DISABLED_ENV_VAR = "GV_CACHE_DISABLED";
+    public static final String CACHE_DISABLED_SYSPROP = "gittle.cache.disabled";
+
+    public static final String POM_LOCATION_ENV_VAR = "GV_EXTENSION_POM_LOCATION";
+    public static final String POM_LOCATION_SYSPROP = "gittle.extension.pomLocation";
+
+    public static final String POM_CACHE_DIR_ENV_VAR = "GV_EXTENSION_POM_CACHE_DIR";
+    public static final String POM_CACHE_DIR_SYSPROP = "gittle.extension.pomCacheDir";
+
     public static final String GITVER_POM_XML = ".gittle.pom.xml";
 
     public static final String GITVER_EXTENSION_PROPERTIES = "gittle-maven-extension.properties";
 
     public static final String GITTLE_PROPERTIES = "gittle.properties";
 
+    public static final String GITTLE_ANCHOR_PROPERTIES = "gittle-anchor.properties";
+
     public static final Pattern UBER_REGEX = Pattern.compile("^" + "(?<prefix>refs/tags/)?"
             + "(?<version>"
             + "(?<major>[0-9]+)\\.(?<minor>[0-9]+)\\.(?<patch>[0-9]+)"
@@ -57,13 +68,33 @@ public class Util {
     public static final String DOT_MVN = ".mvn";
 
     public static boolean isDisabled() {
-        return Stream.of(System.getProperty(DISABLED_SYSPROP), System.getenv(DISABLED_ENV_VAR))
-                .filter(Util::isNotEmpty)
-                .findFirst()
+        return isFlagSet(DISABLED_SYSPROP, DISABLED_ENV_VAR);
+    }
+
+    public static boolean isCacheDisabled() {
+        return isFlagSet(CACHE_DISABLED_SYSPROP, CACHE_DISABLED_ENV_VAR);
+    }
+
+    public static Optional<String> getPomLocation() {
+        return getSetting(POM_LOCATION_SYSPROP, POM_LOCATION_ENV_VAR);
+    }
+
+    public static Optional<String> getPomCacheDir() {
+        return getSetting(POM_CACHE_DIR_SYSPROP, POM_CACHE_DIR_ENV_VAR);
+    }
+
+    private static boolean isFlagSet(String sysprop, String envVar) {
+        return getSetting(sysprop, envVar)
                 .map(Boolean::parseBoolean)
                 .orElse(false);
     }
 
+    private static Optional<String> getSetting(String sysprop, String envVar) {
+        return Stream.of(System.getProperty(sysprop), System.getenv(envVar))
+                .filter(Util::isNotEmpty)
+                .findFirst();
+    }
+
     public static Path getDotMvnDir(Path currentDir) {
         Path refDir = currentDir.toAbsolutePath();
         while (refDir != null && !Files.exists(refDir.resolve(DOT_MVN))) {
@@ -81,6 +112,10 @@ public class Util {
         return getDotMvnDir(currentDir).resolve(GITVER_EXTENSION_PROPERTIES);
     }
 
+    public static Path getAnchorPropsFile(Path currentDir) {
+        return getDotMvnDir(currentDir).resolve(GITTLE_ANCHOR_PROPERTIES);
+    }
+
     public static Properties loadPropsFromFile(Path propertiesPath) {
         Properties props = new Properties();
         if (propertiesPath.toFile().exists()) {
@@ -0,0 +1,157 @@
+package org.emergent.maven.gitver.core.git;
+
+import com.googlecode.javaewah.EWAHCompressedBitmap;
+import org.eclipse.jgit.internal.storage.file.ObjectDirectory;
+import org.eclipse.jgit.internal.storage.file.Pack;
+import org.eclipse.jgit.internal.storage.pack.PackExt;
+import org.eclipse.jgit.lib.BitmapIndex;
+import org.eclipse.jgit.lib.BitmapIndex.Bitmap;
+import org.eclipse.jgit.lib.BitmapIndex.BitmapBuilder;
+import org.eclipse.jgit.lib.BitmapObject;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Counts the commits in {@code base..head} from pack reachability bitmaps.
+ * <p>
+ * Each side is walked by commit headers only, down to the nearest commits that have a bitmap stored
+ * in the index, so no trees or blobs are visited and on a repacked repository only the commits made
+ * since the repack are parsed. The remaining difference is intersected with the pack's commit-type
+ * bitmap instead of being iterated object by object.
+ */
+public final class BitmapCounter {
+
+    /** Length of the bitmap file header that precedes the commit-type bitmap. */
+    private static final int BITMAP_HEADER_LENGTH = 32;
+
+    /** Magic and version 1 of the bitmap file format. */
+    private static final byte[] BITMAP_SIGNATURE = {'B', 'I', 'T', 'M', 0, 1};
+
+    private static final Map<File, CommitTypes> COMMIT_TYPES = new ConcurrentHashMap<>();
+
+    private BitmapCounter() {
+    }
+
+    /**
+     * Returns the number of commits reachable from {@code headId} but not from {@code baseId}, or an
+     * empty result when the repository has no bitmap index.
+     */
+    public static OptionalInt count(Repository repository, ObjectReader reader, ObjectId headId, ObjectId baseId)
+            throws IOException {
+        BitmapIndex index = reader.getBitmapIndex();
+        if (index == null) {
+            return OptionalInt.empty();
+        }
+        List<RevCommit> uncovered = new ArrayList<>();
+        BitmapBuilder difference;
+        try (RevWalk walk = new RevWalk(reader)) {
+            walk.setRetainBody(false);
+            BitmapBuilder base = reach(walk, index, baseId, new ArrayList<>());
+            difference = reach(walk, index, headId, uncovered).andNot(base);
+        }
+        // what is left after removing the walked commits comes from stored bitmaps, so it is all packed
+        int count = 0;
+        for (RevCommit commit : uncovered) {
+            if (difference.contains(commit)) {
+                difference.remove(commit);
+                count++;
+            }
+        }
+        EWAHCompressedBitmap commits = readCommitTypes(repository);
+        if (commits != null) {
+            return OptionalInt.of(count + difference.retrieveCompressed().andCardinality(commits));
+        }
+        for (BitmapObject object : difference) {
+            if (object.getType() == Constants.OBJ_COMMIT) {
+                count++;
+            }
+        }
+        return OptionalInt.of(count);
+    }
+
+    /**
+     * Builds the commits reachable from {@code id}: stored bitmaps where the index has them, plus the
+     * commits above them, which are added to {@code uncovered}.
+     */
+    private static BitmapBuilder reach(RevWalk walk, BitmapIndex index, ObjectId id, List<RevCommit> uncovered)
+            throws IOException {
+        BitmapBuilder result = index.newBitmapBuilder();
+        Deque<RevCommit> pending = new ArrayDeque<>();
+        pending.add(walk.parseCommit(id));
+        RevCommit commit;
+        while ((commit = pending.poll()) != null) {
+            if (result.contains(commit)) {
+                continue;
+            }
+            Bitmap bitmap = index.getBitmap(commit);
+            if (bitmap != null) {
+                result.or(bitmap);
+                continue;
+            }
+            result.addObject(commit, Constants.OBJ_COMMIT);
+            uncovered.add(commit);
+            for (RevCommit parent : commit.getParents()) {
+                walk.parseHeaders(parent);
+                pending.add(parent);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reads the commit-type bitmap of the pack whose bitmap index JGit uses, which is the first pack
+     * with a bitmap file. Pack files are immutable, so the result is cached by bitmap file.
+     */
+    private static EWAHCompressedBitmap readCommitTypes(Repository repository) throws IOException {
+        if (!(repository.getObjectDatabase() instanceof ObjectDirectory objectDirectory)) {
+            return null;
+        }
+        for (Pack pack : objectDirectory.getPacks()) {
+            File bitmapFile = pack.getPackFile().create(PackExt.BITMAP_INDEX);
+            if (!bitmapFile.isFile()) {
+                continue;
+            }
+            File packDir = bitmapFile.getParentFile();
+            CommitTypes cached = COMMIT_TYPES.get(packDir);
+            if (cached == null || !cached.bitmapFile().equals(bitmapFile)) {
+                cached = new CommitTypes(bitmapFile, readCommitTypes(bitmapFile));
+                COMMIT_TYPES.put(packDir, cached);
+            }
+            return cached.commits();
+        }
+        return null;
+    }
+
+    private static EWAHCompressedBitmap readCommitTypes(File bitmapFile) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(bitmapFile.toPath()))) {
+            byte[] header = new byte[BITMAP_HEADER_LENGTH];
+            in.readFully(header);
+            if (!Arrays.equals(header, 0, BITMAP_SIGNATURE.length, BITMAP_SIGNATURE, 0, BITMAP_SIGNATURE.length)) {
+                return null;
+            }
+            EWAHCompressedBitmap commits = new EWAHCompressedBitmap();
+            commits.deserialize(in);
+            return commits;
+        }
+    }
+
+    private record CommitTypes(File bitmapFile, EWAHCompressedBitmap commits) {
+    }
+}
@@ -0,0 +1,193 @@
+package org.emergent.maven.gitver.core.git;
+
+import lombok.extern.java.Log;
+import org.eclipse.jgit.internal.storage.commitgraph.ChangedPathFilter;
+import org.eclipse.jgit.internal.storage.commitgraph.CommitGraph;
+import org.eclipse.jgit.internal.storage.commitgraph.CommitGraphLoader;
+import org.eclipse.jgit.internal.storage.file.FileSnapshot;
+import org.eclipse.jgit.internal.storage.file.ObjectDirectory;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ConfigConstants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * An object reader that serves the repository's commit-graph even though {@code core.commitGraph} is
+ * not set, which JGit otherwise requires before it reads the graph. Both a single
+ * {@code info/commit-graph} file and a split {@code info/commit-graphs} chain, as written by
+ * {@code git maintenance} and {@code git gc} with {@code --split}, are read.
+ * <p>
+ * The setting is applied to this reader only, so the repository's configuration, which may be shared
+ * through {@link RepositoryPool}, is left untouched. Loaded graphs are cached until the file changes,
+ * for as many repositories as the pool holds.
+ */
+@Log
+final class CommitGraphReader extends ObjectReader.Filter {
+
+    private static final String COMMIT_GRAPH = "info/commit-graph";
+    private static final String COMMIT_GRAPHS = "info/commit-graphs";
+    private static final String CHAIN = "commit-graph-chain";
+
+    private static final Map<File, Loaded> GRAPHS = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<File, Loaded> eldest) {
+                    return size() > RepositoryPool.MAX_SIZE;
+                }
+            });
+
+    private final ObjectReader delegate;
+    private final CommitGraph graph;
+
+    private CommitGraphReader(ObjectReader delegate, CommitGraph graph) {
+        this.delegate = delegate;
+        this.graph = graph;
+    }
+
+    /**
+     * Returns a new reader for the repository that reads its commit-graph when one exists, unless the
+     * repository configuration explicitly sets {@code core.commitGraph}, in which case JGit's own
+     * handling applies.
+     */
+    static ObjectReader open(Repository repository) {
+        ObjectReader reader = repository.newObjectReader();
+        String configured = repository.getConfig().getString(
+                ConfigConstants.CONFIG_CORE_SECTION, null, ConfigConstants.CONFIG_COMMIT_GRAPH);
+        if (configured != null || !(repository.getObjectDatabase() instanceof ObjectDirectory objectDirectory)) {
+            return reader;
+        }
+        CommitGraph graph = load(objectDirectory.getDirectory());
+        return graph != null ? new CommitGraphReader(reader, graph) : reader;
+    }
+
+    /**
+     * Loads the single graph file when there is one, as git does, and the chain otherwise. Layer files
+     * are named by their hash and never rewritten, so the snapshot of the chain file covers them.
+     */
+    private static CommitGraph load(File objectsDir) {
+        File single = new File(objectsDir, COMMIT_GRAPH);
+        File chain = new File(new File(objectsDir, COMMIT_GRAPHS), CHAIN);
+        File file = single.isFile() ? single : chain;
+        Loaded loaded = GRAPHS.get(objectsDir);
+        if (loaded != null && loaded.file().equals(file) && !loaded.snapshot().isModified(file)) {
+            return loaded.graph();
+        }
+        if (!file.isFile()) {
+            GRAPHS.remove(objectsDir);
+            return null;
+        }
+        FileSnapshot snapshot = FileSnapshot.save(file);
+        try {
+            CommitGraph graph = file == single ? CommitGraphLoader.open(file) : loadChain(chain);
+            GRAPHS.put(objectsDir, new Loaded(file, snapshot, graph));
+            return graph;
+        } catch (IOException e) {
+            log.fine(() -> "Ignoring unreadable commit-graph " + file + ": " + e);
+            return null;
+        }
+    }
+
+    private static CommitGraph loadChain(File chain) throws IOException {
+        List<String> hashes = Files.readAllLines(chain.toPath(), StandardCharsets.US_ASCII).stream()
+                .map(String::trim)
+                .filter(line -> !line.isEmpty())
+                .toList();
+        if (hashes.isEmpty()) {
+            throw new IOException("Empty commit-graph chain");
+        }
+        CommitGraph[] layers = new CommitGraph[hashes.size()];
+        for (int i = 0; i < layers.length; i++) {
+            layers[i] = CommitGraphLoader.open(new File(chain.getParentFile(), "graph-" + hashes.get(i) + ".graph"));
+        }
+        return layers.length == 1 ? layers[0] : new ChainedCommitGraph(layers);
+    }
+
+    @Override
+    protected ObjectReader delegate() {
+        return delegate;
+    }
+
+    @Override
+    public Optional<CommitGraph> getCommitGraph() {
+        return Optional.of(graph);
+    }
+
+    private record Loaded(File file, FileSnapshot snapshot, CommitGraph graph) {
+    }
+
+    /**
+     * The layers of a split graph, base first. Positions, including the parent positions stored in
+     * each layer, number the commits of all layers in order, so a layer's local position is offset by
+     * the commits of the layers below it.
+     */
+    private static final class ChainedCommitGraph implements CommitGraph {
+
+        private final CommitGraph[] layers;
+        private final long[] offsets;
+        private final long count;
+
+        ChainedCommitGraph(CommitGraph[] layers) {
+            this.layers = layers;
+            this.offsets = new long[layers.length];
+            long total = 0;
+            for (int i = 0; i < layers.length; i++) {
+                offsets[i] = total;
+                total += layers[i].getCommitCnt();
+            }
+            this.count = total;
+        }
+
+        @Override
+        public int findGraphPosition(AnyObjectId commit) {
+            for (int i = layers.length - 1; i >= 0; i--) {
+                int position = layers[i].findGraphPosition(commit);
+                if (position >= 0) {
+                    return (int) (offsets[i] + position);
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public CommitData getCommitData(int graphPos) {
+            int layer = layerOf(graphPos);
+            return layers[layer].getCommitData((int) (graphPos - offsets[layer]));
+        }
+
+        @Override
+        public ObjectId getObjectId(int graphPos) {
+            int layer = layerOf(graphPos);
+            return layers[layer].getObjectId((int) (graphPos - offsets[layer]));
+        }
+
+        @Override
+        public ChangedPathFilter getChangedPathFilter(int graphPos) {
+            int layer = layerOf(graphPos);
+            return layers[layer].getChangedPathFilter((int) (graphPos - offsets[layer]));
+        }
+
+        @Override
+        public long getCommitCnt() {
+            return count;
+        }
+
+        private int layerOf(int graphPos) {
+            int layer = layers.length - 1;
+            while (layer > 0 && offsets[layer] > graphPos) {
+                layer--;
+            }
+            return layer;
+        }
+    }
+}
@@ -0,0 +1,434 @@
+package org.emergent.maven.gitver.core.git;
+
+import org.apache.maven.artifact.versioning.ComparableVersion;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.internal.storage.commitgraph.CommitGraph;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevFlag;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.emergent.maven.gitver.core.GitverConfig;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Walks history from HEAD towards the nearest version tag, counting the commits on the way.
+ * <p>
+ * Like {@code git describe}, the walk collects up to ten tagged candidates, each marking the commits
+ * it can reach with its own flag, and counts for every candidate the visited commits it cannot reach.
+ * Commits are visited in generation order when the commit-graph provides it, so every commit is seen
+ * after all of its descendants, and in commit-date order otherwise. The walk stops as soon as the best
+ * candidate can no longer be beaten, rather than at the first tag found, which on merge-heavy history
+ * may be an older tag brought in by a merge.
+ * <p>
+ * In first-parent mode only the first parent of each merge is followed, so history is a single chain
+ * along the mainline and the commits of merged branches are neither searched nor counted.
+ * <p>
+ * Walks can be bounded by {@code maxCommits} and {@code walkTimeout}, counted over every walk made by
+ * one walker, extensions included. A walker processes at most {@code maxCommits} commits and throws a
+ * {@link WalkBudgetExceededException} on the next one; the clock is only read every 1024 commits.
+ * <p>
+ * When the repository has a commit-graph file, parents and commit times are read from it, whether or
+ * not {@code core.commitGraph} is set, instead of
+ * inflating and parsing every commit object. The reported count is the number of commits in
+ * {@code tag..HEAD}; when merges make that differ from the commits walked, it is taken from the
+ * reachability bitmaps if the repository has them, and from a second walk otherwise.
+ */
+public class CommitWalker implements AutoCloseable {
+
+    private static final int MAX_CANDIDATES = 10;
+    private static final int CLOCK_CHECK_INTERVAL = 1024;
+
+    private final Repository repository;
+    private final ObjectReader reader;
+    private final RevWalk walk;
+    private final boolean firstParent;
+    private final int maxCommits;
+    private final long walkTimeoutNanos;
+    private final long startNanos;
+    private final RevFlag seen;
+    private final RevFlag[] candidateFlags;
+    private int visited;
+
+    public CommitWalker(Repository repository) {
+        this(repository, GitverConfig.builder().build());
+    }
+
+    public CommitWalker(Repository repository, GitverConfig config) {
+        this.repository = repository;
+        this.firstParent = config.isFirstParent();
+        this.maxCommits = config.getMaxCommits() > 0 ? config.getMaxCommits() : Integer.MAX_VALUE;
+        this.walkTimeoutNanos = config.getWalkTimeout() > 0 ? TimeUnit.MILLISECONDS.toNanos(config.getWalkTimeout()) : Long.MAX_VALUE;
+        this.startNanos = System.nanoTime();
+        this.reader = CommitGraphReader.open(repository);
+        this.walk = new RevWalk(reader);
+        // Commit-graph data is only consulted for commits whose bodies are not retained, and without
+        // bodies each visited commit costs little more than its parent pointers.
+        this.walk.setRetainBody(false);
+        this.seen = walk.newFlag("SEEN_BY_FIND_TAG");
+        this.candidateFlags = new RevFlag[MAX_CANDIDATES];
+        for (int i = 0; i < MAX_CANDIDATES; i++) {
+            candidateFlags[i] = walk.newFlag("CANDIDATE_" + i);
+        }
+    }
+
+    public WalkResult findTag(ObjectId headId, TagProvider tagProvider) throws IOException {
+        return findTag(headId, tagProvider, true);
+    }
+
+    /**
+     * Finds the nearest tag, the one with the fewest commits in {@code tag..HEAD}, the way
+     * {@code git describe} does. Unless {@code exactCount} is set, a walk that crossed merges without
+     * generation numbers to order it may report a count that is slightly off; that is still zero
+     * exactly when HEAD is tagged.
+     */
+    public WalkResult findTag(ObjectId headId, TagProvider tagProvider, boolean exactCount) throws IOException {
+        walk.reset();
+        RevCommit head = walk.parseCommit(headId);
+        // registers HEAD as a root, so the next reset() also clears the flags set below
+        walk.markStart(head);
+        CommitQueue queue = new CommitQueue(walk.getObjectReader().getCommitGraph().orElse(CommitGraph.EMPTY));
+        head.add(seen);
+        queue.add(head);
+        List<Candidate> candidates = new ArrayList<>(MAX_CANDIDATES);
+        int commits = 0;
+        boolean merged = false;
+        while (!queue.isEmpty()) {
+            RevCommit commit = queue.poll();
+            visit();
+            commits++;
+            Optional<ComparableVersion> tag = tagProvider.getTag(commit);
+            if (tag.isPresent() && candidates.size() < MAX_CANDIDATES) {
+                Candidate candidate = new Candidate(tag.get().toString(), commit.copy(), candidateFlags[candidates.size()]);
+                candidate.depth = commits - 1;
+                commit.add(candidate.flag);
+                candidates.add(candidate);
+            }
+            // indexed loops over the candidates, since an iterator per visited commit would be most
+            // of what the walk allocates once commits come from the commit-graph
+            for (int i = 0; i < candidates.size(); i++) {
+                Candidate candidate = candidates.get(i);
+                if (!commit.has(candidate.flag)) {
+                    candidate.depth++;
+                }
+            }
+            merged |= !firstParent && commit.getParentCount() > 1;
+            for (RevCommit parent : getParents(commit)) {
+                walk.parseHeaders(parent);
+                for (int i = 0; i < candidates.size(); i++) {
+                    Candidate candidate = candidates.get(i);
+                    if (commit.has(candidate.flag)) {
+                        parent.add(candidate.flag);
+                    }
+                }
+                if (!parent.has(seen)) {
+                    parent.add(seen);
+                    queue.add(parent);
+                }
+            }
+            Candidate best = best(candidates);
+            // Once everything left to walk is reachable from the best candidate its depth is final,
+            // other candidates can only grow, and any tag still to be found is an ancestor of it.
+            if (best != null && commit.has(best.flag) && queue.allHave(best.flag)) {
+                break;
+            }
+        }
+        Candidate best = best(candidates);
+        if (best == null) {
+            return new WalkResult(null, null, commits);
+        }
+        // a single chain, or a walk in generation order, has already counted tag..HEAD exactly
+        boolean counted = !merged || queue.isGenerationOrdered();
+        return new WalkResult(best.tag, best.commit, counted || !exactCount ? best.depth : countBetween(headId, best.commit));
+    }
+
+    private RevCommit[] getParents(RevCommit commit) {
+        return firstParent && commit.getParentCount() > 1 ? new RevCommit[]{commit.getParent(0)} : commit.getParents();
+    }
+
+    private static Candidate best(List<Candidate> candidates) {
+        Candidate best = null;
+        for (int i = 0; i < candidates.size(); i++) {
+            Candidate candidate = candidates.get(i);
+            // ties go to the candidate found first
+            if (best == null || candidate.depth < best.depth) {
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Advances a result previously resolved for {@code previousHeadId} to {@code headId} by walking
+     * only the commits in between. Returns empty when the previous HEAD is gone or is no longer an
+     * ancestor (after a rebase or force-push), or when one of the new commits is tagged, in which
+     * case a full {@link #findTag} is needed. In first-parent mode the previous HEAD must also be on
+     * the first-parent chain of the new one.
+     */
+    public Optional<WalkResult> extend(WalkResult previous, ObjectId previousHeadId, ObjectId headId,
+                                       TagProvider tagProvider) throws IOException {
+        RevCommit head = walk.parseCommit(headId);
+        RevCommit base;
+        try {
+            base = walk.parseCommit(previousHeadId);
+        } catch (MissingObjectException e) {
+            return Optional.empty();
+        }
+        boolean ancestor = walk.isMergedInto(base, head);
+        walk.reset();
+        if (!ancestor) {
+            return Optional.empty();
+        }
+        if (firstParent) {
+            return extendFirstParent(previous, base, head, tagProvider);
+        }
+        walk.markStart(head);
+        walk.markUninteresting(base);
+        int added = 0;
+        for (RevCommit commit : walk) {
+            visit();
+            if (tagProvider.isTagged(commit)) {
+                walk.reset();
+                return Optional.empty();
+            }
+            added++;
+        }
+        walk.reset();
+        return Optional.of(new WalkResult(previous.tag(), previous.taggedCommit(), previous.commits() + added));
+    }
+
+    private Optional<WalkResult> extendFirstParent(WalkResult previous, RevCommit base, RevCommit head,
+                                                   TagProvider tagProvider) throws IOException {
+        int added = 0;
+        for (RevCommit commit = head; !commit.equals(base); commit = commit.getParent(0)) {
+            visit();
+            // older than the previous HEAD without reaching it: the previous HEAD is on a merged branch
+            if (commit.getParentCount() == 0 || commit.getCommitTime() < base.getCommitTime()
+                    || tagProvider.isTagged(commit)) {
+                return Optional.empty();
+            }
+            walk.parseHeaders(commit.getParent(0));
+            added++;
+        }
+        return Optional.of(new WalkResult(previous.tag(), previous.taggedCommit(), previous.commits() + added));
+    }
+
+    /**
+     * Counts the commits reachable from {@code headId} but not from {@code baseId}. In first-parent
+     * mode, counts the first-parent chain from {@code headId} down to {@code baseId} instead.
+     */
+    public int countBetween(ObjectId headId, ObjectId baseId) throws IOException {
+        if (firstParent) {
+            return countFirstParents(headId, baseId);
+        }
+        OptionalInt counted = BitmapCounter.count(repository, walk.getObjectReader(), headId, baseId);
+        if (counted.isPresent()) {
+            return counted.getAsInt();
+        }
+        walk.reset();
+        walk.markStart(walk.parseCommit(headId));
+        walk.markUninteresting(walk.parseCommit(baseId));
+        int commits = 0;
+        while (walk.next() != null) {
+            visit();
+            commits++;
+        }
+        return commits;
+    }
+
+    private int countFirstParents(ObjectId headId, ObjectId baseId) throws IOException {
+        int commits = 0;
+        for (RevCommit commit = walk.parseCommit(headId); !commit.equals(baseId); commit = commit.getParent(0)) {
+            visit();
+            commits++;
+            if (commit.getParentCount() == 0) {
+                break;
+            }
+            walk.parseHeaders(commit.getParent(0));
+        }
+        return commits;
+    }
+
+    /**
+     * Accounts for the next commit, failing before it is processed if that would take the walker past
+     * {@code maxCommits} commits or, checked every 1024 commits, past {@code walkTimeout}.
+     */
+    private void visit() {
+        boolean overTime = (visited & (CLOCK_CHECK_INTERVAL - 1)) == 0 && System.nanoTime() - startNanos > walkTimeoutNanos;
+        if (visited >= maxCommits || overTime) {
+            throw new WalkBudgetExceededException(visited, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        }
+        visited++;
+    }
+
+    @Override
+    public void close() {
+        walk.close();
+        reader.close();
+    }
+
+    private static final class Candidate {
+
+        private final String tag;
+        private final ObjectId commit;
+        private final RevFlag flag;
+        private int depth;
+
+        private Candidate(String tag, ObjectId commit, RevFlag flag) {
+            this.tag = tag;
+            this.commit = commit;
+            this.flag = flag;
+        }
+    }
+
+    /**
+     * Commits waiting to be visited, highest generation first and newest first within a generation.
+     * Commits missing from the commit-graph are newer than it, so they rank above every commit in it.
+     * <p>
+     * A binary heap over parallel arrays, so queueing a commit allocates nothing beyond the occasional
+     * array growth; the generation is looked up once per commit rather than on every comparison.
+     */
+    private static final class CommitQueue {
+
+        private static final int INITIAL_CAPACITY = 64;
+
+        private final CommitGraph graph;
+        private RevCommit[] commits = new RevCommit[INITIAL_CAPACITY];
+        private int[] generations = new int[INITIAL_CAPACITY];
+        private long[] sequences = new long[INITIAL_CAPACITY];
+        private int size;
+        private boolean generationOrdered;
+        private long sequence;
+
+        private CommitQueue(CommitGraph graph) {
+            this.graph = graph;
+            this.generationOrdered = graph != CommitGraph.EMPTY;
+        }
+
+        void add(RevCommit commit) {
+            int generation = 0;
+            if (graph != CommitGraph.EMPTY) {
+                int position = graph.findGraphPosition(commit);
+                if (position >= 0) {
+                    generation = graph.getCommitData(position).getGeneration();
+                } else {
+                    // only commit dates order the commits outside the graph among themselves
+                    generation = Integer.MAX_VALUE;
+                    generationOrdered = false;
+                }
+            }
+            if (size == commits.length) {
+                commits = Arrays.copyOf(commits, size * 2);
+                generations = Arrays.copyOf(generations, size * 2);
+                sequences = Arrays.copyOf(sequences, size * 2);
+            }
+            int ii = size++;
+            set(ii, commit, generation, sequence++);
+            while (ii > 0 && precedes(ii, (ii - 1) / 2)) {
+                swap(ii, (ii - 1) / 2);
+                ii = (ii - 1) / 2;
+            }
+        }
+
+        RevCommit poll() {
+            RevCommit head = commits[0];
+            size--;
+            set(0, commits[size], generations[size], sequences[size]);
+            commits[size] = null;
+            int ii = 0;
+            while (true) {
+                int first = ii;
+                for (int child = 2 * ii + 1; child <= 2 * ii + 2 && child < size; child++) {
+                    if (precedes(child, first)) {
+                        first = child;
+                    }
+                }
+                if (first == ii) {
+                    return head;
+                }
+                swap(ii, first);
+                ii = first;
+            }
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        boolean isGenerationOrdered() {
+            return generationOrdered;
+        }
+
+        boolean allHave(RevFlag flag) {
+            for (int ii = 0; ii < size; ii++) {
+                if (!commits[ii].has(flag)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean precedes(int a, int b) {
+            if (generations[a] != generations[b]) {
+                return generations[a] > generations[b];
+            }
+            if (commits[a].getCommitTime() != commits[b].getCommitTime()) {
+                return commits[a].getCommitTime() > commits[b].getCommitTime();
+            }
+            return sequences[a] < sequences[b];
+        }
+
+        private void set(int ii, RevCommit commit, int generation, long order) {
+            commits[ii] = commit;
+            generations[ii] = generation;
+            sequences[ii] = order;
+        }
+
+        private void swap(int a, int b) {
+            RevCommit commit = commits[a];
+            int generation = generations[a];
+            long order = sequences[a];
+            set(a, commits[b], generations[b], sequences[b]);
+            set(b, commit, generation, order);
+        }
+    }
+
+    /**
+     * The outcome of a walk: the matched tag (if any), the tagged commit and the commits visited before it.
+     */
+    public record WalkResult(String tag, ObjectId taggedCommit, int commits) {
+
+        private static final String TAGGED_KEY = "tagged";
+        private static final String TAGGED_COMMIT_KEY = "taggedCommit";
+        private static final String COMMITS_KEY = "commits";
+
+        public Optional<String> getTag() {
+            return Optional.ofNullable(tag);
+        }
+
+        public Map<String, String> asMap() {
+            Map<String, String> map = new LinkedHashMap<>();
+            getTag().ifPresent(t -> map.put(TAGGED_KEY, t));
+            Optional.ofNullable(taggedCommit).ifPresent(id -> map.put(TAGGED_COMMIT_KEY, id.getName()));
+            map.put(COMMITS_KEY, String.valueOf(commits));
+            return map;
+        }
+
+        public static WalkResult from(Map<String, String> map) {
+            return new WalkResult(
+                    map.get(TAGGED_KEY),
+                    Optional.ofNullable(map.get(TAGGED_COMMIT_KEY)).map(ObjectId::fromString).orElse(null),
+                    Integer.parseInt(map.getOrDefault(COMMITS_KEY, "0")));
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package org.emergent.maven.gitver.core.git;
+
+import org.emergent.maven.gitver.core.GitverException;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * The ways of deciding whether the worktree is dirty, selected with the {@code dirtyCheck} setting.
+ */
+public enum DirtyCheck {
+    /** Compare tracked index entries against HEAD and the worktree, see {@link DirtyDetector}. */
+    TRACKED,
+    /** Run a full {@code git status}. */
+    STATUS,
+    /** Like {@link #TRACKED}, but only re-examine files whose stat changed since the last build. */
+    CACHED,
+    /** Like {@link #TRACKED}, but compares the worktree on {@code dirtyCheckThreads} threads. */
+    PARALLEL;
+
+    public static DirtyCheck from(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new GitverException(String.format("Unknown dirtyCheck '%s', expected one of %s", value,
+                    Arrays.stream(values()).map(DirtyCheck::toString).collect(Collectors.joining(", "))));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
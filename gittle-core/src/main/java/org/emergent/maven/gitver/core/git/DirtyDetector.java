@@ -0,0 +1,130 @@
+package org.emergent.maven.gitver.core.git;
+
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.dircache.DirCacheIterator;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.submodule.SubmoduleWalk;
+import org.eclipse.jgit.treewalk.AbstractTreeIterator;
+import org.eclipse.jgit.treewalk.CanonicalTreeParser;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.treewalk.FileTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.WorkingTreeIterator;
+import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * Decides whether the worktree has uncommitted changes to tracked files.
+ * <p>
+ * This answers the same question as checking {@code Status.getUncommittedChanges()} for emptiness,
+ * but only tracked index entries are compared against HEAD and the worktree: untracked directories
+ * are never entered, ignore rules are never evaluated, and the walk stops at the first difference.
+ * Submodules are checked recursively and skip-worktree entries are only compared against HEAD.
+ */
+public class DirtyDetector {
+
+    private static final int HEAD_TREE = 0;
+    private static final int INDEX = 1;
+    private static final int WORKTREE = 2;
+
+    private final Repository repository;
+
+    public DirtyDetector(Repository repository) {
+        this.repository = repository;
+    }
+
+    public boolean isDirty() throws IOException {
+        return isDirty(TreeFilter.ALL);
+    }
+
+    /**
+     * Like {@link #isDirty()}, but only looks at the given repository-relative paths.
+     */
+    public boolean isDirty(Collection<String> paths) throws IOException {
+        return !paths.isEmpty() && isDirty(PathFilterGroup.createFromStrings(paths));
+    }
+
+    private boolean isDirty(TreeFilter filter) throws IOException {
+        if (repository.isBare()) {
+            return false;
+        }
+        DirCache dirCache = repository.readDirCache();
+        try (ObjectReader reader = repository.newObjectReader();
+                TreeWalk walk = new TreeWalk(repository, reader)) {
+            walk.addTree(getHeadTree(reader));
+            walk.addTree(new DirCacheIterator(dirCache));
+            FileTreeIterator worktree = new FileTreeIterator(repository);
+            walk.addTree(worktree);
+            worktree.setDirCacheIterator(walk, INDEX);
+            walk.setRecursive(false);
+            walk.setFilter(filter);
+            while (walk.next()) {
+                if (isDirty(walk, reader)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private boolean isDirty(TreeWalk walk, ObjectReader reader) throws IOException {
+        AbstractTreeIterator head = walk.getTree(HEAD_TREE, AbstractTreeIterator.class);
+        DirCacheIterator index = walk.getTree(INDEX, DirCacheIterator.class);
+        if (index == null) {
+            // either untracked, which is never looked into, or removed from the index
+            return head != null;
+        }
+        if (walk.isSubtree()) {
+            walk.enterSubtree();
+            return false;
+        }
+        DirCacheEntry entry = index.getDirCacheEntry();
+        if (entry.getStage() != DirCacheEntry.STAGE_0) {
+            return true;
+        }
+        if (head == null || !head.idEqual(index) || head.getEntryRawMode() != index.getEntryRawMode()) {
+            return true;
+        }
+        return isModified(repository, entry, walk.getTree(WORKTREE, WorkingTreeIterator.class), reader);
+    }
+
+    /**
+     * Compares an index entry with its worktree file. Skip-worktree entries, as left by a sparse
+     * checkout, are never compared. A submodule is modified when its checked out commit differs from
+     * the index or when it has uncommitted changes of its own, like {@code git status}; a submodule
+     * that was never initialized is clean.
+     */
+    static boolean isModified(Repository repository, DirCacheEntry entry, WorkingTreeIterator file,
+            ObjectReader reader) throws IOException {
+        if (entry.isSkipWorkTree()) {
+            return false;
+        }
+        if (entry.getFileMode() == FileMode.GITLINK) {
+            return isSubmoduleModified(repository, entry);
+        }
+        return file == null || file.isModified(entry, true, reader);
+    }
+
+    private static boolean isSubmoduleModified(Repository repository, DirCacheEntry entry) throws IOException {
+        try (Repository submodule = SubmoduleWalk.getSubmoduleRepository(repository, entry.getPathString())) {
+            if (submodule == null) {
+                return false;
+            }
+            ObjectId headId = submodule.resolve(Constants.HEAD);
+            return !entry.getObjectId().equals(headId) || new DirtyDetector(submodule).isDirty();
+        }
+    }
+
+    private AbstractTreeIterator getHeadTree(ObjectReader reader) throws IOException {
+        ObjectId treeId = repository.resolve(Constants.HEAD + "^{tree}");
+        return treeId == null ? new EmptyTreeIterator() : new CanonicalTreeParser(null, reader, treeId);
+    }
+}
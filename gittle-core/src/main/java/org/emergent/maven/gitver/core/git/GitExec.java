@@ -44,12 +44,19 @@ public class GitExec {
         return getRepository(basePath, false);
     }
 
+    /**
+     * Returns the repository containing the path, shared through the {@link RepositoryPool}. The
+     * caller must close it.
+     */
     public static Repository getRepository(File basePath, boolean mustExist) throws IOException {
-        return new FileRepositoryBuilder()
+        FileRepositoryBuilder builder = new FileRepositoryBuilder()
                 .readEnvironment()
                 .findGitDir(normalize(basePath))
-                .setMustExist(mustExist)
-                .build();
+                .setMustExist(mustExist);
+        if (builder.getGitDir() == null) {
+            return builder.build();
+        }
+        return RepositoryPool.acquire(builder.getGitDir(), builder::build);
     }
 
     private static File normalize(File file) {
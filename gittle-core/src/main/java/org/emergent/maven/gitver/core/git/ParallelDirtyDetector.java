@@ -0,0 +1,204 @@
+package org.emergent.maven.gitver.core.git;
+
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.dircache.DirCacheIterator;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.treewalk.AbstractTreeIterator;
+import org.eclipse.jgit.treewalk.CanonicalTreeParser;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.treewalk.FileTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.WorkingTreeIterator;
+import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
+import org.emergent.maven.gitver.core.GitverException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link DirtyDetector} that compares the worktree on several threads.
+ * <p>
+ * Staged changes are found first by comparing HEAD with the index, skipping every subtree whose
+ * cached tree id is unchanged. The index is then split into ranges of whole directories that are
+ * compared against the worktree concurrently; the first modified file found stops the other tasks.
+ * Submodules and skip-worktree entries are handled as in {@link DirtyDetector}.
+ */
+public class ParallelDirtyDetector {
+
+    // more ranges than threads evens out directories that are slower to stat
+    private static final int RANGES_PER_THREAD = 4;
+
+    private static final long IDLE_SECONDS = 30;
+
+    // shared by all detectors, so a build does not start a pool per module; idle threads exit, so a
+    // long-lived build daemon does not keep them
+    private static final ThreadPoolExecutor EXECUTOR = newExecutor();
+
+    private final Repository repository;
+    private final int threads;
+
+    public ParallelDirtyDetector(Repository repository, int threads) {
+        this.repository = repository;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    public boolean isDirty() throws IOException {
+        if (repository.isBare()) {
+            return false;
+        }
+        DirCache dirCache = repository.readDirCache();
+        if (hasStagedChanges(dirCache)) {
+            return true;
+        }
+        Queue<List<String>> pending = new ConcurrentLinkedQueue<>(split(dirCache, threads * RANGES_PER_THREAD));
+        int workers = Math.min(threads, pending.size());
+        ensureCapacity(workers);
+        AtomicBoolean dirty = new AtomicBoolean();
+        AtomicBoolean stopped = new AtomicBoolean();
+        List<Future<?>> futures = new ArrayList<>(workers);
+        try {
+            for (int ii = 0; ii < workers; ii++) {
+                futures.add(EXECUTOR.submit(() -> {
+                    List<String> range;
+                    while (!stopped.get() && (range = pending.poll()) != null) {
+                        if (isModified(dirCache, range, stopped)) {
+                            dirty.set(true);
+                            stopped.set(true);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GitverException(e.getMessage(), e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioe) {
+                throw ioe;
+            }
+            throw new GitverException(e.getCause().getMessage(), e.getCause());
+        } finally {
+            stopped.set(true);
+        }
+        return dirty.get();
+    }
+
+    /**
+     * Grows the shared executor to at least {@code threads} threads. It never shrinks, so it stays
+     * bounded by the largest thread count any caller asked for.
+     */
+    private static synchronized void ensureCapacity(int threads) {
+        if (EXECUTOR.getMaximumPoolSize() < threads) {
+            EXECUTOR.setMaximumPoolSize(threads);
+            EXECUTOR.setCorePoolSize(threads);
+        }
+    }
+
+    private static ThreadPoolExecutor newExecutor() {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, IDLE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread thread = new Thread(r, "gittle-dirty-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private boolean hasStagedChanges(DirCache dirCache) throws IOException {
+        try (ObjectReader reader = repository.newObjectReader();
+                TreeWalk walk = new TreeWalk(repository, reader)) {
+            walk.addTree(getHeadTree(reader));
+            walk.addTree(new DirCacheIterator(dirCache));
+            while (walk.next()) {
+                AbstractTreeIterator head = walk.getTree(0, AbstractTreeIterator.class);
+                DirCacheIterator index = walk.getTree(1, DirCacheIterator.class);
+                if (head == null || index == null) {
+                    return true;
+                }
+                boolean unchanged = head.idEqual(index) && head.getEntryRawMode() == index.getEntryRawMode();
+                if (walk.isSubtree()) {
+                    if (!unchanged) {
+                        walk.enterSubtree();
+                    }
+                } else if (!unchanged || index.getDirCacheEntry().getStage() != DirCacheEntry.STAGE_0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private boolean isModified(DirCache dirCache, List<String> paths, AtomicBoolean cancelled) throws IOException {
+        try (ObjectReader reader = repository.newObjectReader();
+                TreeWalk walk = new TreeWalk(repository, reader)) {
+            walk.addTree(new DirCacheIterator(dirCache));
+            FileTreeIterator worktree = new FileTreeIterator(repository);
+            walk.addTree(worktree);
+            worktree.setDirCacheIterator(walk, 0);
+            walk.setFilter(PathFilterGroup.createFromStrings(paths));
+            walk.setRecursive(true);
+            while (!cancelled.get() && walk.next()) {
+                DirCacheIterator index = walk.getTree(0, DirCacheIterator.class);
+                if (index == null) {
+                    continue;
+                }
+                WorkingTreeIterator file = walk.getTree(1, WorkingTreeIterator.class);
+                if (DirtyDetector.isModified(repository, index.getDirCacheEntry(), file, reader)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Splits the index into roughly {@code count} ranges, only cutting between directories.
+     */
+    static List<List<String>> split(DirCache dirCache, int count) {
+        int entries = dirCache.getEntryCount();
+        int target = Math.max(1, (entries + count - 1) / count);
+        List<List<String>> ranges = new ArrayList<>();
+        List<String> range = new ArrayList<>();
+        String previousDir = null;
+        for (int ii = 0; ii < entries; ii++) {
+            String path = dirCache.getEntry(ii).getPathString();
+            String dir = path.substring(0, Math.max(0, path.lastIndexOf('/')));
+            if (range.size() >= target && !dir.equals(previousDir)) {
+                ranges.add(range);
+                range = new ArrayList<>();
+            }
+            if (range.isEmpty() || !path.equals(range.get(range.size() - 1))) {
+                range.add(path);
+            }
+            previousDir = dir;
+        }
+        if (!range.isEmpty()) {
+            ranges.add(range);
+        }
+        return ranges;
+    }
+
+    private AbstractTreeIterator getHeadTree(ObjectReader reader) throws IOException {
+        ObjectId treeId = repository.resolve(Constants.HEAD + "^{tree}");
+        return treeId == null ? new EmptyTreeIterator() : new CanonicalTreeParser(null, reader, treeId);
+    }
+}
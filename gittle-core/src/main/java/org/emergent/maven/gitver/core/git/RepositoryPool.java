@@ -0,0 +1,172 @@
+package org.emergent.maven.gitver.core.git;
+
+import lombok.extern.java.Log;
+import org.eclipse.jgit.internal.storage.file.FileSnapshot;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.Repository;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Reference-counted pool of open repositories, keyed by git directory.
+ * <p>
+ * The pool holds one reference to each repository and every {@link #acquire} adds another, which
+ * the caller releases by closing the repository as usual. A pooled repository therefore keeps its
+ * parsed config, refs and pack indexes across operations. It is replaced once the packed-refs file
+ * or the pack directory changes on disk; callers still holding the old instance keep using it until
+ * they close it.
+ * <p>
+ * Repositories not acquired for {@link #IDLE_TIMEOUT}, and the least recently used ones beyond
+ * {@link #MAX_SIZE}, are dropped from the pool, so a long-lived build daemon or IDE does not keep
+ * files open that block {@code git gc} on Windows. Dropping only releases the pool's reference; the
+ * repository closes once its last user closes it too.
+ */
+@Log
+public final class RepositoryPool {
+
+    static final int MAX_SIZE = 8;
+    static final Duration IDLE_TIMEOUT = Duration.ofMinutes(5);
+
+    private static final ConcurrentMap<File, Entry> POOL = new ConcurrentHashMap<>();
+    private static final AtomicBoolean SWEEP_SCHEDULED = new AtomicBoolean();
+    private static final ScheduledThreadPoolExecutor SWEEPER = newSweeper();
+
+    private RepositoryPool() {
+    }
+
+    /**
+     * Returns the pooled repository for the git directory, opening it with the supplier if the pool
+     * has none or its refs or packs changed. The caller must close the returned repository.
+     */
+    public static Repository acquire(File gitDir, RepositoryOpener opener) throws IOException {
+        File key = gitDir.getAbsoluteFile();
+        try {
+            return POOL.compute(key, (k, entry) -> {
+                if (entry != null && entry.isModified()) {
+                    log.fine(() -> "Refs or packs changed, reopening " + k);
+                    entry.repository().close();
+                    entry = null;
+                }
+                if (entry == null) {
+                    entry = Entry.open(opener);
+                }
+                // taken while the entry is still guarded, so the pool can't close it underneath us
+                entry.repository().incrementOpen();
+                entry.lastUsed().set(System.nanoTime());
+                return entry;
+            }).repository();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            evictLeastRecentlyUsed();
+            scheduleSweep();
+        }
+    }
+
+    /**
+     * Drops the repositories that have not been acquired within {@code idle}.
+     */
+    static void evictIdle(Duration idle) {
+        long cutoff = System.nanoTime() - idle.toNanos();
+        POOL.keySet().forEach(key -> evictIf(key, entry -> entry.lastUsed().get() - cutoff <= 0));
+    }
+
+    private static void evictLeastRecentlyUsed() {
+        while (POOL.size() > MAX_SIZE) {
+            POOL.entrySet().stream()
+                    .min(Comparator.comparingLong(e -> e.getValue().lastUsed().get()))
+                    .ifPresent(e -> evictIf(e.getKey(), entry -> entry == e.getValue()));
+        }
+    }
+
+    private static void evictIf(File key, Predicate<Entry> condition) {
+        POOL.computeIfPresent(key, (k, entry) -> {
+            if (!condition.test(entry)) {
+                return entry;
+            }
+            log.fine(() -> "Releasing pooled repository " + k);
+            entry.repository().close();
+            return null;
+        });
+    }
+
+    private static void scheduleSweep() {
+        if (!POOL.isEmpty() && SWEEP_SCHEDULED.compareAndSet(false, true)) {
+            SWEEPER.schedule(() -> {
+                SWEEP_SCHEDULED.set(false);
+                evictIdle(IDLE_TIMEOUT);
+                scheduleSweep();
+            }, IDLE_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static ScheduledThreadPoolExecutor newSweeper() {
+        ScheduledThreadPoolExecutor sweeper = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "gittle-repository-pool");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // no thread is kept while nothing is pooled
+        sweeper.setKeepAliveTime(1, TimeUnit.SECONDS);
+        sweeper.allowCoreThreadTimeOut(true);
+        return sweeper;
+    }
+
+    /**
+     * Drops all pooled repositories, closing them once their current users are done.
+     */
+    public static void clear() {
+        POOL.keySet().forEach(key -> POOL.computeIfPresent(key, (k, entry) -> {
+            entry.repository().close();
+            return null;
+        }));
+    }
+
+    @FunctionalInterface
+    public interface RepositoryOpener {
+        Repository open() throws IOException;
+    }
+
+    private record Entry(Repository repository, List<Watched> watched, AtomicLong lastUsed) {
+
+        static Entry open(RepositoryOpener opener) {
+            try {
+                Repository repository = opener.open();
+                File commonDir = repository.getCommonDirectory();
+                File packDir = new File(commonDir, Constants.OBJECTS + "/pack");
+                return new Entry(repository, List.of(
+                        Watched.of(new File(commonDir, Constants.PACKED_REFS)),
+                        Watched.of(packDir)), new AtomicLong(System.nanoTime()));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        boolean isModified() {
+            return watched.stream().anyMatch(Watched::isModified);
+        }
+    }
+
+    private record Watched(File file, FileSnapshot snapshot) {
+
+        static Watched of(File file) {
+            return new Watched(file, FileSnapshot.save(file));
+        }
+
+        boolean isModified() {
+            return snapshot.isModified(file);
+        }
+    }
+}
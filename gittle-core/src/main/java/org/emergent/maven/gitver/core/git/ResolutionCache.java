@@ -0,0 +1,344 @@
+package org.emergent.maven.gitver.core.git;
+
+import lombok.extern.java.Log;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.emergent.maven.gitver.core.GitverConfig;
+import org.emergent.maven.gitver.core.Util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Persistent cache of history-derived resolution data, stored under {@code <gitdir>/gittle/resolved}.
+ * <p>
+ * Entries are keyed by the HEAD commit, a stamp of the tag refs and the effective configuration, so a
+ * lookup costs a handful of file stats plus one small read. Temporary files orphaned by a process that
+ * died mid-write are pruned along with old entries. Entries are written to a temporary file
+ * and atomically renamed into place, which keeps concurrent builds on the same clone from ever
+ * observing a partially written entry.
+ * <p>
+ * The most recent resolution for each configuration is also kept under {@code <gitdir>/gittle/latest},
+ * so a build on a descendant of that HEAD only needs to walk the commits made since.
+ * <p>
+ * Entries read or written are also kept in a JVM-wide map, so long-lived processes such as mvnd or an
+ * IDE importing the project repeatedly skip the file read. The tag refs are stamped once per instance,
+ * so an instance is meant for a single resolution; a new instance sees a moved HEAD or a new tag.
+ */
+@Log
+public class ResolutionCache {
+
+    public static final String CACHE_DIR = "gittle";
+
+    private static final String RESOLVED_DIR = "resolved";
+    private static final String LATEST_DIR = "latest";
+    private static final String FORMAT_VERSION = "2";
+    private static final String KEY_PROPERTY = "key";
+    private static final int MAX_ENTRIES = 32;
+    private static final int MAX_MEMORY_ENTRIES = 64;
+    private static final Duration STALE_TEMP_AGE = Duration.ofHours(1);
+
+    private static final Map<String, Map<String, String>> MEMORY = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Map<String, String>> eldest) {
+                    return size() > MAX_MEMORY_ENTRIES;
+                }
+            });
+
+    private final Repository repository;
+    private final Path cacheDir;
+    private final Path latestDir;
+    private final boolean enabled;
+    private final String anchorStamp;
+    private String tagRefsStamp;
+
+    private ResolutionCache(Repository repository, boolean enabled, String anchorStamp) {
+        this.repository = repository;
+        this.cacheDir = getCacheDir(repository).resolve(RESOLVED_DIR);
+        this.latestDir = getCacheDir(repository).resolve(LATEST_DIR);
+        this.enabled = enabled;
+        this.anchorStamp = anchorStamp;
+    }
+
+    public static ResolutionCache getInstance(Repository repository) {
+        return getInstance(repository, null);
+    }
+
+    /**
+     * Returns a cache whose keys also cover the anchor, which moves the nearest "tag" like a tag ref would.
+     */
+    public static ResolutionCache getInstance(Repository repository, VersionAnchor anchor) {
+        return new ResolutionCache(repository, !Util.isCacheDisabled(), anchor != null ? anchor.getStamp() : "");
+    }
+
+    public static Path getCacheDir(Repository repository) {
+        return repository.getDirectory().toPath().resolve(CACHE_DIR);
+    }
+
+    /**
+     * Creates the lookup key for the given HEAD and configuration.
+     */
+    public String createKey(ObjectId headId, GitverConfig config) {
+        return String.join("|",
+                FORMAT_VERSION,
+                headId.getName(),
+                getTagRefsStamp(),
+                anchorStamp,
+                getConfigStamp(config));
+    }
+
+    public Optional<Map<String, String>> get(String key) {
+        return read(cacheDir.resolve(toFileName(key)), key);
+    }
+
+    public void put(String key, Map<String, String> values) {
+        if (write(cacheDir, cacheDir.resolve(toFileName(key)), key, values)) {
+            try {
+                prune();
+            } catch (IOException e) {
+                log.fine(() -> "Failed to prune cache entries under " + cacheDir + ": " + e);
+            }
+        }
+    }
+
+    /**
+     * Returns the most recent resolution stored for the configuration, provided the tag refs have not
+     * changed since it was stored.
+     */
+    public Optional<Map<String, String>> getLatest(GitverConfig config) {
+        String configStamp = getConfigStamp(config);
+        return read(latestDir.resolve(toFileName(configStamp)), createLatestKey(configStamp));
+    }
+
+    public void putLatest(GitverConfig config, Map<String, String> values) {
+        String configStamp = getConfigStamp(config);
+        write(latestDir, latestDir.resolve(toFileName(configStamp)), createLatestKey(configStamp), values);
+    }
+
+    private String createLatestKey(String configStamp) {
+        return String.join("|", FORMAT_VERSION, getTagRefsStamp(), anchorStamp, configStamp);
+    }
+
+    private Optional<Map<String, String>> read(Path entry, String key) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        String memoryKey = entry + "|" + key;
+        Map<String, String> remembered = MEMORY.get(memoryKey);
+        if (remembered != null) {
+            return Optional.of(remembered);
+        }
+        Properties props = new Properties();
+        try (Reader reader = Files.newBufferedReader(entry, StandardCharsets.UTF_8)) {
+            props.load(reader);
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException | IllegalArgumentException e) {
+            log.fine(() -> "Ignoring unreadable cache entry " + entry + ": " + e);
+            return Optional.empty();
+        }
+        if (!key.equals(props.getProperty(KEY_PROPERTY))) {
+            return Optional.empty();
+        }
+        props.remove(KEY_PROPERTY);
+        Map<String, String> values = Map.copyOf(Util.toStringStringMap(props));
+        MEMORY.put(memoryKey, values);
+        return Optional.of(values);
+    }
+
+    private boolean write(Path dir, Path entry, String key, Map<String, String> values) {
+        if (!enabled) {
+            return false;
+        }
+        MEMORY.put(entry + "|" + key, Map.copyOf(values));
+        Properties props = Util.toProperties(values);
+        props.setProperty(KEY_PROPERTY, key);
+        try {
+            Files.createDirectories(dir);
+            Path temp = Files.createTempFile(dir, entry.getFileName().toString(), ".tmp");
+            try {
+                try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                    props.store(writer, null);
+                }
+                moveAtomically(temp, entry);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            return true;
+        } catch (IOException e) {
+            log.fine(() -> "Failed to write cache entry under " + dir + ": " + e);
+            return false;
+        }
+    }
+
+    static void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void prune() throws IOException {
+        for (Path dir : List.of(cacheDir, latestDir, cacheDir.getParent())) {
+            pruneTempFiles(dir);
+        }
+        List<Path> entries;
+        try (Stream<Path> files = Files.list(cacheDir)) {
+            entries = files.filter(p -> p.getFileName().toString().endsWith(".properties")).toList();
+        }
+        if (entries.size() <= MAX_ENTRIES) {
+            return;
+        }
+        entries.stream()
+                .sorted(Comparator.comparing(ResolutionCache::lastModified))
+                .limit(entries.size() - MAX_ENTRIES)
+                .forEach(p -> {
+                    try {
+                        Files.deleteIfExists(p);
+                    } catch (IOException ignored) {
+                        // another build may be pruning concurrently
+                    }
+                });
+    }
+
+    /**
+     * Deletes temporary files left behind by a process that died between creating and renaming
+     * them. Files younger than {@link #STALE_TEMP_AGE} may still be being written and are kept.
+     */
+    static void pruneTempFiles(Path dir) {
+        long cutoff = System.currentTimeMillis() - STALE_TEMP_AGE.toMillis();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.filter(p -> p.getFileName().toString().endsWith(".tmp"))
+                    .filter(p -> lastModified(p) < cutoff)
+                    .forEach(p -> {
+                        try {
+                            Files.deleteIfExists(p);
+                        } catch (IOException ignored) {
+                            // another build may be pruning concurrently
+                        }
+                    });
+        } catch (IOException e) {
+            log.fine(() -> "Failed to prune temporary files under " + dir + ": " + e);
+        }
+    }
+
+    /**
+     * Returns the tag refs stamp, taken on first use so that every key of one resolution describes
+     * the same tag state, the one its tags were listed from.
+     */
+    private String getTagRefsStamp() {
+        if (tagRefsStamp == null) {
+            tagRefsStamp = computeTagRefsStamp();
+        }
+        return tagRefsStamp;
+    }
+
+    /**
+     * Stamps every source of tag refs without reading them, along with the files that change which
+     * commits the walk reaches: the shallow boundary, grafts and replace refs. The packed-refs file,
+     * the reftable list and loose refs are all replaced through a rename, so their file key changes
+     * whenever they are rewritten, and a loose ref that is added or deleted changes the listing.
+     */
+    private String computeTagRefsStamp() {
+        Path commonDir = repository.getCommonDirectory().toPath();
+        StringBuilder stamp = new StringBuilder();
+        stamp.append(getFileStamp(commonDir.resolve(Constants.PACKED_REFS))).append(';');
+        stamp.append(getFileStamp(commonDir.resolve("reftable").resolve("tables.list"))).append(';');
+        stamp.append(getFileStamp(commonDir.resolve(Constants.SHALLOW))).append(';');
+        stamp.append(getFileStamp(commonDir.resolve("info").resolve("grafts"))).append(';');
+        appendLooseRefs(stamp, commonDir.resolve(Constants.R_TAGS));
+        appendLooseRefs(stamp, commonDir.resolve(Constants.R_REFS + "replace"));
+        return digest(stamp.toString());
+    }
+
+    private static void appendLooseRefs(StringBuilder stamp, Path refsDir) {
+        if (!Files.isDirectory(refsDir)) {
+            return;
+        }
+        try {
+            // the walk hands out the attributes it already read, so no file is opened
+            Map<String, String> loose = new TreeMap<>();
+            Files.walkFileTree(refsDir, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    loose.put(refsDir.relativize(file).toString(), getFileStamp(attrs));
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            stamp.append(refsDir.getFileName()).append(':');
+            loose.forEach((name, fileStamp) -> stamp.append(name).append('=').append(fileStamp).append(';'));
+        } catch (IOException e) {
+            stamp.append("unreadable:").append(refsDir);
+        }
+    }
+
+    private static String getConfigStamp(GitverConfig config) {
+        Map<String, String> sorted = new TreeMap<>(config.asMap());
+        return digest(sorted.entrySet().stream()
+                .map(e -> e.getKey() + "=" + e.getValue())
+                .collect(Collectors.joining("\n")));
+    }
+
+    static String getFileStamp(Path path) {
+        try {
+            return getFileStamp(Files.readAttributes(path, BasicFileAttributes.class));
+        } catch (IOException e) {
+            return "-";
+        }
+    }
+
+    private static String getFileStamp(BasicFileAttributes attrs) {
+        // full timestamp precision, since a file system without file keys only has the mtime to go by
+        return attrs.size() + ":" + attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS) + ":" + attrs.fileKey();
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    private static String toFileName(String key) {
+        return digest(key).substring(0, 32) + ".properties";
+    }
+
+    static String digest(String value) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            byte[] hash = md.digest(value.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package org.emergent.maven.gitver.core.git;
+
+import lombok.extern.java.Log;
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.emergent.maven.gitver.core.Util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Dirty detection backed by a stat snapshot of the tracked files, kept in {@code <gitdir>/gittle/stat}.
+ * <p>
+ * The snapshot records HEAD, the index checksum and the mtime, size and file key of every tracked
+ * file as of the last clean result. While HEAD and the index are unchanged, only files whose stat
+ * differs from the snapshot are compared by {@link DirtyDetector}. Files modified too close to the
+ * moment the snapshot was taken are recorded as racy and are always re-examined, since a later write
+ * within the same timestamp tick would otherwise go unnoticed.
+ */
+@Log
+public class StatCache {
+
+    private static final String STAT_FILE = "stat";
+    private static final int FORMAT_VERSION = 1;
+    private static final long RACY = -1;
+    // covers the coarsest common timestamp granularity (FAT)
+    private static final long RACY_WINDOW_MILLIS = 2000;
+
+    private final Repository repository;
+    private final Path statFile;
+    private final boolean enabled;
+
+    private StatCache(Repository repository, boolean enabled) {
+        this.repository = repository;
+        this.statFile = ResolutionCache.getCacheDir(repository).resolve(STAT_FILE);
+        this.enabled = enabled;
+    }
+
+    public static StatCache getInstance(Repository repository) {
+        return new StatCache(repository, !Util.isCacheDisabled());
+    }
+
+    public boolean isDirty() throws IOException {
+        DirtyDetector detector = new DirtyDetector(repository);
+        if (!enabled || repository.isBare()) {
+            return detector.isDirty();
+        }
+        long started = System.currentTimeMillis();
+        String head = getHead();
+        String indexChecksum = getIndexChecksum();
+        Snapshot snapshot = load();
+        if (snapshot != null && snapshot.head().equals(head) && snapshot.indexChecksum().equals(indexChecksum)) {
+            List<String> changed = getChangedPaths(snapshot);
+            if (changed.isEmpty()) {
+                return false;
+            }
+            if (detector.isDirty(changed)) {
+                Files.deleteIfExists(statFile);
+                return true;
+            }
+            Map<String, Stat> stats = new LinkedHashMap<>(snapshot.stats());
+            for (String path : changed) {
+                stats.put(path, stat(path, started));
+            }
+            store(new Snapshot(head, indexChecksum, stats));
+            return false;
+        }
+        if (detector.isDirty()) {
+            Files.deleteIfExists(statFile);
+            return true;
+        }
+        store(capture(head, indexChecksum, started));
+        return false;
+    }
+
+    private List<String> getChangedPaths(Snapshot snapshot) {
+        List<String> changed = new ArrayList<>();
+        snapshot.stats().forEach((path, stat) -> {
+            if (stat.mtime() == RACY || !stat.equals(stat(path, Long.MAX_VALUE))) {
+                changed.add(path);
+            }
+        });
+        return changed;
+    }
+
+    private Snapshot capture(String head, String indexChecksum, long started) throws IOException {
+        DirCache dirCache = repository.readDirCache();
+        Map<String, Stat> stats = new LinkedHashMap<>();
+        for (int ii = 0; ii < dirCache.getEntryCount(); ii++) {
+            DirCacheEntry entry = dirCache.getEntry(ii);
+            // a submodule's directory stat says nothing about its checked out commit
+            boolean gitlink = entry.getFileMode() == FileMode.GITLINK;
+            stats.put(entry.getPathString(), gitlink ? new Stat(RACY, 0, "") : stat(entry.getPathString(), started));
+        }
+        return new Snapshot(head, indexChecksum, stats);
+    }
+
+    private Stat stat(String path, long started) {
+        File file = new File(repository.getWorkTree(), path);
+        try {
+            BasicFileAttributes attrs =
+                    Files.readAttributes(file.toPath(), BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            long mtime = attrs.lastModifiedTime().toMillis();
+            String fileKey = Objects.toString(attrs.fileKey(), "");
+            return new Stat(mtime >= started - RACY_WINDOW_MILLIS ? RACY : mtime, attrs.size(), fileKey);
+        } catch (IOException e) {
+            return new Stat(RACY, -1, "");
+        }
+    }
+
+    private String getHead() throws IOException {
+        ObjectId headId = repository.resolve(Constants.HEAD);
+        return headId == null ? "" : headId.getName();
+    }
+
+    /**
+     * Reads the checksum trailing the index file, which changes whenever the index is rewritten.
+     */
+    private String getIndexChecksum() throws IOException {
+        File indexFile = repository.getIndexFile();
+        try (RandomAccessFile raf = new RandomAccessFile(indexFile, "r")) {
+            byte[] checksum = new byte[Constants.OBJECT_ID_LENGTH];
+            if (raf.length() < checksum.length) {
+                return "";
+            }
+            raf.seek(raf.length() - checksum.length);
+            raf.readFully(checksum);
+            return HexFormat.of().formatHex(checksum);
+        } catch (FileNotFoundException e) {
+            return "";
+        }
+    }
+
+    private Snapshot load() {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(statFile)))) {
+            if (in.readInt() != FORMAT_VERSION) {
+                return null;
+            }
+            String head = in.readUTF();
+            String indexChecksum = in.readUTF();
+            int count = in.readInt();
+            Map<String, Stat> stats = new LinkedHashMap<>();
+            for (int ii = 0; ii < count; ii++) {
+                stats.put(in.readUTF(), new Stat(in.readLong(), in.readLong(), in.readUTF()));
+            }
+            return new Snapshot(head, indexChecksum, stats);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            log.fine(() -> "Ignoring unreadable stat cache " + statFile + ": " + e);
+            return null;
+        }
+    }
+
+    private void store(Snapshot snapshot) {
+        try {
+            Files.createDirectories(statFile.getParent());
+            Path temp = Files.createTempFile(statFile.getParent(), STAT_FILE, ".tmp");
+            try {
+                try (DataOutputStream out =
+                             new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                    out.writeInt(FORMAT_VERSION);
+                    out.writeUTF(snapshot.head());
+                    out.writeUTF(snapshot.indexChecksum());
+                    out.writeInt(snapshot.stats().size());
+                    for (Map.Entry<String, Stat> entry : snapshot.stats().entrySet()) {
+                        out.writeUTF(entry.getKey());
+                        out.writeLong(entry.getValue().mtime());
+                        out.writeLong(entry.getValue().size());
+                        out.writeUTF(entry.getValue().fileKey());
+                    }
+                }
+                ResolutionCache.moveAtomically(temp, statFile);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            log.fine(() -> "Failed to write stat cache " + statFile + ": " + e);
+        }
+    }
+
+    private record Snapshot(String head, String indexChecksum, Map<String, Stat> stats) {
+    }
+
+    private record Stat(long mtime, long size, String fileKey) {
+    }
+}
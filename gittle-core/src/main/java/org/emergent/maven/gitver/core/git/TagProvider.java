@@ -1,164 +1,169 @@
 package org.emergent.maven.gitver.core.git;
 
-import org.apache.commons.lang3.StringUtils;
 import org.apache.maven.artifact.versioning.ComparableVersion;
+import lombok.extern.java.Log;
 import org.eclipse.jgit.api.Git;
-import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.errors.AmbiguousObjectException;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.errors.RevisionSyntaxException;
+import org.eclipse.jgit.lib.AnyObjectId;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ObjectId;
-import org.eclipse.jgit.lib.ObjectLoader;
-import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevObject;
-import org.eclipse.jgit.revwalk.RevTag;
+import org.eclipse.jgit.revwalk.RevWalk;
 import org.emergent.maven.gitver.core.GitverConfig;
 import org.emergent.maven.gitver.core.GitverException;
 import org.emergent.maven.gitver.core.Util;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.util.Collections;
 import java.util.Comparator;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.BinaryOperator;
 import java.util.function.Supplier;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
+/**
+ * Index of the version tags in a repository, keyed by the commit each tag points to.
+ * <p>
+ * Tags are listed by the literal prefix of {@code tagNamePattern}, and the peeled values recorded in
+ * packed-refs or reftable are used where present. Only unpeeled annotated tags are loaded, all
+ * through one shared reader. A {@link VersionAnchor}, when given, counts as one more tag.
+ */
+@Log
 public class TagProvider {
 
+    private static final String REGEX_META = "\\^$.|?*+()[]{}";
+
     private final GitverConfig config;
     private final Git git;
-    private final Supplier<Map<ObjectId, List<ComparableVersion>>> tagMap;
+    private final VersionAnchor anchor;
+    private final Supplier<Map<ObjectId, ComparableVersion>> tagMap;
 
     public TagProvider(GitverConfig config, Git git) {
+        this(config, git, null);
+    }
+
+    public TagProvider(GitverConfig config, Git git, VersionAnchor anchor) {
         this.config = config;
         this.git = git;
+        this.anchor = anchor;
         this.tagMap = Util.memoize(this::createTagMap);
     }
 
-    private Map<ObjectId, List<ComparableVersion>> createTagMap() {
-        // create a map of commit-refs and corresponding list of tags
-        try {
-            String tagPattern = config.getTagNamePattern();
-            if (!tagPattern.startsWith("^")) {
-                tagPattern = "^" + tagPattern;
+    private Map<ObjectId, ComparableVersion> createTagMap() {
+        // create a map of commit-refs and the greatest version tagged on each
+        String tagPattern = config.getTagNamePattern();
+        if (!tagPattern.startsWith("^")) {
+            tagPattern = "^" + tagPattern;
+        }
+        if (!tagPattern.endsWith("$")) {
+            tagPattern = tagPattern + "$";
+        }
+        Pattern pattern = Pattern.compile(tagPattern);
+        String refPrefix = Constants.R_TAGS + getLiteralPrefix(config.getTagNamePattern());
+
+        Repository repository = git.getRepository();
+        Map<ObjectId, ComparableVersion> tags = new HashMap<>();
+        try (RevWalk walk = new RevWalk(repository)) {
+            walk.setRetainBody(false);
+            for (Ref ref : repository.getRefDatabase().getRefsByPrefix(refPrefix)) {
+                String tagName = ref.getLeaf().getName().substring(Constants.R_TAGS.length());
+                Matcher matcher = pattern.matcher(tagName);
+                if (!matcher.matches()) {
+                    continue;
+                }
+                ObjectId commitId = getCommitId(walk, ref);
+                if (commitId != null) {
+                    tags.merge(commitId, new ComparableVersion(matcher.group(1)),
+                            BinaryOperator.maxBy(Comparator.naturalOrder()));
+                }
             }
-            if (!tagPattern.endsWith("$")) {
-                tagPattern = tagPattern + "$";
+            if (anchor != null) {
+                addAnchor(repository, tags);
             }
-            Pattern pattern = Pattern.compile(tagPattern);
-
-            return git.tagList().call().stream()
-                    .map(ref -> {
-                        String refName = ref.getLeaf().getName();
-                        String tagName = StringUtils.substringAfter(refName, "refs/tags/");
-                        return Map.entry(ref, pattern.matcher(tagName));
-                    })
-                    .filter(entry -> entry.getValue().matches())
-                    .collect(Collectors.groupingBy(
-                            entry -> getObjectId(entry.getKey()),
-                            Collectors.mapping(
-                                    entry -> new ComparableVersion(
-                                            entry.getValue().group(1)),
-                                    Collectors.toList())));
-        } catch (GitAPIException e) {
+        } catch (IOException e) {
             throw new GitverException(e);
         }
+        return tags;
+    }
+
+    private void addAnchor(Repository repository, Map<ObjectId, ComparableVersion> tags) throws IOException {
+        ObjectId commitId;
+        try {
+            commitId = repository.resolve(anchor.commit() + "^{commit}");
+        } catch (MissingObjectException e) {
+            commitId = null;
+        } catch (RevisionSyntaxException | AmbiguousObjectException e) {
+            throw new GitverException("Invalid anchor commit '" + anchor.commit() + "'", e);
+        }
+        if (commitId == null) {
+            // e.g. a shallow clone that does not reach back to the anchor
+            log.warning(() -> "Ignoring anchor " + anchor.version() + ", commit " + anchor.commit() + " was not found");
+            return;
+        }
+        tags.merge(commitId, new ComparableVersion(anchor.version()), BinaryOperator.maxBy(Comparator.naturalOrder()));
     }
 
     /**
      * Returns the tag with the greatest semantic version that points to this commit.
      */
-    public Optional<ComparableVersion> getTag(RevCommit commit) {
-        List<ComparableVersion> tags = tagMap.get().getOrDefault(commit.getId(), Collections.emptyList());
-        return tags.stream().max(Comparator.naturalOrder());
-    }
-
-    public ObjectId getObjectId(Ref ref) {
-        return getObjectId(resolveRevObject(ref).getLast());
-    }
-
-    public ObjectId getObjectId(ObjectId objectId) {
-        return getObjectId(resolveRevObject(objectId).getLast());
+    public Optional<ComparableVersion> getTag(AnyObjectId commit) {
+        // called for every walked commit, so a miss must not allocate
+        return Optional.ofNullable(tagMap.get().get(commit));
     }
 
-    public ObjectId getObjectId(RevObject revObj) {
-        return Optional.ofNullable(revObj).map(RevObject::getId).orElse(null);
+    public boolean isTagged(AnyObjectId commit) {
+        return tagMap.get().containsKey(commit);
     }
 
-    public LinkedList<RevObject> resolveRevObject(Ref ref) {
-        ObjectId objectIdImmediate = getObjectIdImmediate(ref);
-        return resolveRevObject(objectIdImmediate);
-    }
-
-    public LinkedList<RevObject> resolveRevObject(ObjectId objectId) {
-        return getTargetRevObject(getRevObject(objectId));
-    }
-
-    private RevObject getRevObject(Ref ref) {
-        ObjectId objectIdImmediate = getObjectIdImmediate(ref);
-        return getRevObject(objectIdImmediate);
-    }
-
-    private RevObject getRevObject(ObjectId objectId) {
-        try (ObjectReader reader = git.getRepository().newObjectReader()) {
-            //    try {
-            ObjectLoader loader = reader.open(objectId);
-            int objectType = loader.getType();
-            byte[] rawData = loader.getBytes();
-            switch (objectType) {
-                case Constants.OBJ_EXT:
-                    System.out.printf("\text: %s%n", objectId.getName());
-                    return null;
-                case Constants.OBJ_COMMIT:
-                    return RevCommit.parse(rawData);
-                case Constants.OBJ_TREE:
-                    System.out.printf("\ttree: %s%n", objectId.getName());
-                    return null;
-                case Constants.OBJ_BLOB:
-                    String content = new String(rawData, StandardCharsets.UTF_8);
-                    System.out.printf("\tblob: %s, content: %s%n", objectId.getName(), content);
-                    return null;
-                case Constants.OBJ_TAG:
-                    return RevTag.parse(rawData);
-                default:
-                    System.out.printf("\tother: %s%n", objectId.getName());
-                    return null;
-            }
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+    private static ObjectId getCommitId(RevWalk walk, Ref ref) throws IOException {
+        if (ref.isPeeled()) {
+            // a peeled ref without a peeled id is a lightweight tag
+            return Optional.ofNullable(ref.getPeeledObjectId()).orElse(ref.getObjectId());
         }
+        if (ref.getObjectId() == null) {
+            return null;
+        }
+        RevObject target = walk.peel(walk.parseAny(ref.getObjectId()));
+        return target instanceof RevCommit ? target.copy() : null;
     }
 
-    public ObjectId getObjectIdImmediate(Ref ref) {
-        Util.check(ref.isPeeled() == (ref.getPeeledObjectId() != null));
-        return ref.isPeeled() ? ref.getPeeledObjectId() : ref.getObjectId();
-    }
-
-    private static LinkedList<RevObject> getTargetRevObject(RevObject revObj) {
-        return getTargetRevObject(revObj, new LinkedList<>());
-    }
-
-    private static LinkedList<RevObject> getTargetRevObject(RevObject revObj, LinkedList<RevObject> results) {
-        return switch (revObj.getType()) {
-            case Constants.OBJ_COMMIT -> {
-                results.add(revObj);
-                yield results;
-            }
-            case Constants.OBJ_TAG -> {
-                // annotated tag
-                results.add(revObj);
-                RevObject target = ((RevTag) revObj).getObject();
-                if (target == null) {
-                    yield results;
+    /**
+     * Returns the literal text every tag name matching the pattern must start with, or an empty
+     * string when that can't be determined.
+     */
+    static String getLiteralPrefix(String tagPattern) {
+        String pattern = tagPattern.startsWith("^") ? tagPattern.substring(1) : tagPattern;
+        if (pattern.indexOf('|') >= 0) {
+            return "";
+        }
+        StringBuilder prefix = new StringBuilder();
+        int ii = 0;
+        while (ii < pattern.length()) {
+            char ch = pattern.charAt(ii);
+            int next = ii + 1;
+            if (ch == '\\') {
+                if (next >= pattern.length() || Character.isLetterOrDigit(pattern.charAt(next))) {
+                    break;
                 }
-                yield getTargetRevObject(target, results);
+                ch = pattern.charAt(next);
+                next++;
+            } else if (REGEX_META.indexOf(ch) >= 0) {
+                break;
             }
-            default -> results;
-        };
+            if (next < pattern.length() && "?*{".indexOf(pattern.charAt(next)) >= 0) {
+                // the character is optional or repeated
+                break;
+            }
+            prefix.append(ch);
+            ii = next;
+        }
+        return prefix.toString();
     }
 }
@@ -0,0 +1,36 @@
+package org.emergent.maven.gitver.core.git;
+
+import org.emergent.maven.gitver.core.GitverException;
+import org.emergent.maven.gitver.core.Util;
+
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.Properties;
+
+/**
+ * A commit declared to carry a version, read from {@code .mvn/gittle-anchor.properties}. It is treated
+ * like a version tag on that commit, so walks through old, untagged history stop there.
+ */
+public record VersionAnchor(String commit, String version) {
+
+    public static final String COMMIT_KEY = "commit";
+    public static final String VERSION_KEY = "version";
+
+    public static Optional<VersionAnchor> load(Path currentDir) {
+        Path anchorFile = Util.getAnchorPropsFile(currentDir);
+        Properties props = Util.loadPropsFromFile(anchorFile);
+        if (props.isEmpty()) {
+            return Optional.empty();
+        }
+        String commit = props.getProperty(COMMIT_KEY, "").trim();
+        String version = props.getProperty(VERSION_KEY, "").trim();
+        if (commit.isEmpty() || version.isEmpty()) {
+            throw new GitverException(String.format("%s must set both '%s' and '%s'", anchorFile, COMMIT_KEY, VERSION_KEY));
+        }
+        return Optional.of(new VersionAnchor(commit, version));
+    }
+
+    String getStamp() {
+        return commit + "=" + version;
+    }
+}
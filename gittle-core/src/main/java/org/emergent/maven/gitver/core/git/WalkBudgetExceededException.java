@@ -0,0 +1,22 @@
+package org.emergent.maven.gitver.core.git;
+
+import lombok.Getter;
+import org.emergent.maven.gitver.core.GitverException;
+
+/**
+ * Thrown when a walk visits more commits than {@code maxCommits} allows, or runs past {@code walkTimeout}.
+ */
+@Getter
+public class WalkBudgetExceededException extends GitverException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int commits;
+    private final long elapsedMillis;
+
+    public WalkBudgetExceededException(int commits, long elapsedMillis) {
+        super(String.format("History walk gave up after %d commits in %d ms", commits, elapsedMillis));
+        this.commits = commits;
+        this.elapsedMillis = elapsedMillis;
+    }
+}
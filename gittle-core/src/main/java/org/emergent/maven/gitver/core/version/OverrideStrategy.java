@@ -42,6 +42,11 @@ public class OverrideStrategy extends GitverConfig implements VersionStrategy {
                 .releaseBranches(getReleaseBranches())
                 .tagNamePattern(getTagNamePattern())
                 .versionPattern(getVersionPattern())
+                .dirtyCheck(getDirtyCheck())
+                .dirtyCheckThreads(getDirtyCheckThreads())
+                .firstParent(isFirstParent())
+                .maxCommits(getMaxCommits())
+                .walkTimeout(getWalkTimeout())
                 .build();
     }
 
@@ -10,37 +10,43 @@ import lombok.Value;
 import lombok.experimental.Accessors;
 import lombok.experimental.NonFinal;
 import lombok.experimental.SuperBuilder;
-import org.apache.maven.artifact.versioning.ComparableVersion;
+import lombok.extern.java.Log;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.Status;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.Repository;
-import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.submodule.SubmoduleWalk;
 import org.emergent.maven.gitver.core.GitverConfig;
+import org.emergent.maven.gitver.core.GitverException;
 import org.emergent.maven.gitver.core.PropCodec;
 import org.emergent.maven.gitver.core.Util;
+import org.emergent.maven.gitver.core.git.CommitWalker;
+import org.emergent.maven.gitver.core.git.CommitWalker.WalkResult;
+import org.emergent.maven.gitver.core.git.DirtyDetector;
 import org.emergent.maven.gitver.core.git.GitExec;
+import org.emergent.maven.gitver.core.git.ParallelDirtyDetector;
+import org.emergent.maven.gitver.core.git.ResolutionCache;
+import org.emergent.maven.gitver.core.git.StatCache;
 import org.emergent.maven.gitver.core.git.TagProvider;
+import org.emergent.maven.gitver.core.git.VersionAnchor;
+import org.emergent.maven.gitver.core.git.WalkBudgetExceededException;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.LinkedList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import static java.util.Objects.requireNonNull;
-import static java.util.regex.Pattern.quote;
 
+@Log
 @Value
 @NonFinal
 @NoArgsConstructor
@@ -55,6 +61,11 @@ public class PatternStrategy extends ResolvedData implements VersionStrategy {
     private static final String STANDARD_PREFIX = "gittle.resolved.";
     private static final String VERSION_STRING = "version";
     private static final String RESOLVED_PREFIX = "resolved.";
+    private static final String HEAD_KEY = "head";
+    private static final String BUDGET_EXCEEDED_PREFIX = "0.0.0-budget-exceeded-";
+    private static final String TAGGED_INPUT = "tagged";
+    private static final String COMMITS_INPUT = "commits";
+    private static final String DIRTY_INPUT = "dirty";
 
 //    @lombok.Builder.ObtainVia(method = "getInitialBuilderVersion", isStatic = true)
 //    @Getter(value =  AccessLevel.PRIVATE)
@@ -71,14 +82,15 @@ public class PatternStrategy extends ResolvedData implements VersionStrategy {
     }
 
     static VersionStrategy getPatternStrategy(GitverConfig config, File basePath) {
+        VersionAnchor anchor = VersionAnchor.load(basePath.toPath()).orElse(null);
         return GitExec.execOp(basePath, git -> {
-            return getPatternStrategy(config, git);
+            return getPatternStrategy(config, git, anchor);
         });
     }
 
-    private static VersionStrategy getPatternStrategy(GitverConfig config, Git git) throws Exception {
+    private static VersionStrategy getPatternStrategy(GitverConfig config, Git git, VersionAnchor anchor) throws Exception {
         Repository repository = git.getRepository();
-        TagProvider tagProvider = new TagProvider(config, git);
+        TagProvider tagProvider = new TagProvider(config, git, anchor);
         ObjectId headId = requireNonNull(repository.resolve(Constants.HEAD), "headId is null");
 
         PatternStrategyBuilder<?, ?> builder = builder()
@@ -87,27 +99,100 @@ public class PatternStrategy extends ResolvedData implements VersionStrategy {
                 .releaseBranches(config.getReleaseBranches())
                 .tagNamePattern(config.getTagNamePattern())
                 .versionPattern(config.getVersionPattern())
+                .dirtyCheck(config.getDirtyCheck())
+                .dirtyCheckThreads(config.getDirtyCheckThreads())
+                .firstParent(config.isFirstParent())
+                .maxCommits(config.getMaxCommits())
+                .walkTimeout(config.getWalkTimeout())
                 .branch(repository.getBranch())
                 .hash(headId.getName());
 
-        int commits = 0;
-        for (RevCommit commit : git.log().add(headId).call()) {
-            Optional<String> tag = tagProvider.getTag(commit).map(ComparableVersion::toString);
-            if (tag.isPresent()) {
-                builder.tagged(tag.get());
-                break;
+        // only resolve the inputs the pattern uses; on a release branch the hash is dropped for a clean,
+        // tagged HEAD, so it depends on the commit count and dirty state as well. Inputs that are resolved
+        // are exported too, so the commit count is always exact, and the others are marked unresolved.
+        Set<PatternToken> tokens = getTokens(config.getVersionPattern());
+        List<String> unresolved = new ArrayList<>();
+        boolean hashOnRelease = config.getReleaseBranchesSet().contains(repository.getBranch())
+                && (tokens.contains(PatternToken.HASH) || tokens.contains(PatternToken.HASH_SHORT));
+        if (hashOnRelease || tokens.contains(PatternToken.TAG) || tokens.contains(PatternToken.COMMIT)
+                || tokens.contains(PatternToken.SNAPSHOT)) {
+            WalkResult history;
+            try {
+                history = resolveHistory(git, config, anchor, tagProvider, headId);
+            } catch (WalkBudgetExceededException e) {
+                log.warning(() -> String.format("%s (maxCommits: %d, walkTimeout: %d ms); using a fallback version",
+                        e.getMessage(), config.getMaxCommits(), config.getWalkTimeout()));
+                // keep the config, branch and hash; none of the walked inputs are known
+                return builder.walkBudgetExceeded(true)
+                        .unresolved(String.join(",", TAGGED_INPUT, COMMITS_INPUT, DIRTY_INPUT))
+                        .build();
             }
-            boolean isMergeCommit = commit.getParentCount() > 1;
-            commits++;
+            history.getTag().ifPresent(builder::tagged);
+            builder.commits(history.commits());
+        } else {
+            unresolved.add(TAGGED_INPUT);
+            unresolved.add(COMMITS_INPUT);
         }
-        builder.commits(commits);
-
-        Status status = git.status().setIgnoreSubmodules(SubmoduleWalk.IgnoreSubmoduleMode.UNTRACKED).call();
-        builder.dirty(!status.getUncommittedChanges().isEmpty());
+        if (hashOnRelease || tokens.contains(PatternToken.DIRTY)) {
+            builder.dirty(isDirty(git, config));
+        } else {
+            unresolved.add(DIRTY_INPUT);
+        }
+        builder.unresolved(String.join(",", unresolved));
 
         return builder.build();
     }
 
+    /**
+     * Returns the tokens the pattern refers to.
+     */
+    static Set<PatternToken> getTokens(String versionPattern) {
+        return Arrays.stream(PatternToken.values())
+                .filter(t -> versionPattern.contains(t.id()))
+                .collect(Collectors.toCollection(() -> EnumSet.noneOf(PatternToken.class)));
+    }
+
+    private static WalkResult resolveHistory(Git git, GitverConfig config, VersionAnchor anchor, TagProvider tagProvider,
+                                             ObjectId headId) {
+        ResolutionCache cache = ResolutionCache.getInstance(git.getRepository(), anchor);
+        String cacheKey = cache.createKey(headId, config);
+        return cache.get(cacheKey).map(WalkResult::from).orElseGet(() -> {
+            WalkResult resolved = resolveHistory(git, config, tagProvider, headId, cache.getLatest(config));
+            cache.put(cacheKey, resolved.asMap());
+            Map<String, String> latest = new LinkedHashMap<>(resolved.asMap());
+            latest.put(HEAD_KEY, headId.getName());
+            cache.putLatest(config, latest);
+            return resolved;
+        });
+    }
+
+    private static boolean isDirty(Git git, GitverConfig config) throws Exception {
+        Repository repository = git.getRepository();
+        return switch (config.getDirtyCheckMode()) {
+            case TRACKED -> new DirtyDetector(repository).isDirty();
+            case CACHED -> StatCache.getInstance(repository).isDirty();
+            case PARALLEL -> new ParallelDirtyDetector(repository, config.getDirtyCheckThreads()).isDirty();
+            case STATUS -> {
+                Status status = git.status().setIgnoreSubmodules(SubmoduleWalk.IgnoreSubmoduleMode.UNTRACKED).call();
+                yield !status.getUncommittedChanges().isEmpty();
+            }
+        };
+    }
+
+    private static WalkResult resolveHistory(Git git, GitverConfig config, TagProvider tagProvider, ObjectId headId,
+                                             Optional<Map<String, String>> latest) {
+        try (CommitWalker walker = new CommitWalker(git.getRepository(), config)) {
+            Optional<WalkResult> extended = Optional.empty();
+            if (latest.isPresent() && latest.get().containsKey(HEAD_KEY)) {
+                ObjectId latestHead = ObjectId.fromString(latest.get().get(HEAD_KEY));
+                extended = walker.extend(WalkResult.from(latest.get()), latestHead, headId, tagProvider);
+            }
+            return extended.isPresent() ? extended.get() : walker.findTag(headId, tagProvider);
+        } catch (IOException e) {
+            throw new GitverException(e);
+        }
+    }
+
 //    public PatternStrategy roundTrip() {
 //        String versionString = calculateVersion(this);
 //        return new PatternStrategy(toBuilder().version(versionString));
@@ -138,101 +223,7 @@ public class PatternStrategy extends ResolvedData implements VersionStrategy {
     //}
 
     private static String calculateVersion(ResolvedData resolved) {
-        String pattern = resolved.getVersionPattern();
-        Map<String, String> values = getReplacementMap(resolved);
-        return performTokenReplacements(pattern, values);
-    }
-
-    private static Map<String, String> getReplacementMap(ResolvedData resolved) {
-        Set<String> releaseSet = resolved.getReleaseBranchesSet();
-        String branch = Optional.ofNullable(resolved.getBranch()).orElse(releaseSet.stream().findFirst().orElse("unknown"));
-        boolean isReleaseBranch = releaseSet.contains(branch);
-        String devBranch = isReleaseBranch ? "" : branch;
-        int commits = resolved.getCommits();
-        String hash = resolved.getHash();
-        boolean dirty = resolved.isDirty();
-        boolean omitHash = isReleaseBranch && commits == 0 && !dirty;
-        return Arrays.stream(PatternToken.values())
-                .collect(Collectors.toMap(
-                        PatternToken::id,
-                        t -> String.valueOf(
-                                switch (t) {
-                                    case TAG -> resolved.getTagged();
-                                    case COMMIT -> commits;
-                                    case SNAPSHOT -> commits > 0 ? "SNAPSHOT" : "";
-                                    case BRANCH -> branch;
-                                    case DEV_BRANCH -> devBranch;
-                                    case HASH_SHORT -> omitHash ? "" : resolved.getHashShort();
-                                    case HASH -> omitHash ? "" : hash;
-                                    case DIRTY -> dirty ? "dirty" : "";
-                                }
-                        )
-                ));
-    }
-
-    private static String performTokenReplacements(String versionPattern, Map<String, String> codeReplMap) {
-        String codes =
-                Arrays.stream(PatternToken.values()).map(PatternToken::code).collect(Collectors.joining());
-        String tokenRegex = quote("%") + "[" + codes + "]";
-        Pattern patternx = Pattern.compile("(?<uni>" + tokenRegex + ")"
-                + "|\\("
-                + "(?<pre>[^()%]+)?(?<mid>" + tokenRegex + ")(?<suf>[^()%]+)?"
-                + "\\)");
-
-        Matcher m = patternx.matcher(versionPattern);
-        AtomicInteger priorEnd = new AtomicInteger(-1);
-
-        String result = m.results()
-                .flatMap(r -> {
-                    String uni = null;
-                    String pre = null;
-                    String mid = null;
-                    String suf = null;
-                    for (int ii = 1; ii <= r.groupCount(); ii++) {
-                        switch (ii) {
-                            case 1:
-                                uni = r.group(ii);
-                                break;
-                            case 2:
-                                pre = r.group(ii);
-                                break;
-                            case 3:
-                                mid = r.group(ii);
-                                break;
-                            case 4:
-                                suf = r.group(ii);
-                                break;
-                        }
-                    }
-
-                    List<String> res = new LinkedList<>();
-                    String tokId = "";
-                    if (Util.isNotBlank(uni)) {
-                        tokId = uni;
-                        res.add(Optional.ofNullable(codeReplMap.get(tokId)).orElse(""));
-                    } else if (Util.isNotBlank(mid)) {
-                        tokId = mid;
-                        String repl =
-                                Optional.ofNullable(codeReplMap.get(tokId)).orElse("");
-                        if (!repl.isEmpty() && !"0".equals(repl)) {
-                            Stream.of(pre, repl, suf).filter(Util::isNotEmpty).forEach(res::add);
-                        }
-                    }
-
-                    int priorMatchEnd = priorEnd.getAndUpdate($ -> r.end());
-                    if (priorMatchEnd > -1 && priorMatchEnd < r.start()) {
-                        String unmatchedPreviousSegment = versionPattern.substring(priorMatchEnd, r.start());
-                        res.add(0, unmatchedPreviousSegment);
-                    }
-                    return res.stream();
-                })
-                .filter(Objects::nonNull)
-                .collect(Collectors.joining());
-
-        // append any remaining after the matches ran out
-        int lastMatchEndIdx = priorEnd.get();
-        result = lastMatchEndIdx < 0 ? result : result.concat(versionPattern.substring(lastMatchEndIdx));
-        return result;
+        return PatternTemplate.of(resolved.getVersionPattern()).render(resolved);
     }
 
     @Getter
@@ -298,7 +289,9 @@ public class PatternStrategy extends ResolvedData implements VersionStrategy {
 //
         public PatternStrategy build() {
             ResolvedData resolved = new ResolvedData(this);
-            String calculatedVersion = calculateVersion(resolved);
+            String calculatedVersion = resolved.isWalkBudgetExceeded()
+                    ? BUDGET_EXCEEDED_PREFIX + resolved.getHashShort()
+                    : calculateVersion(resolved);
             this.version(calculatedVersion);
             return new PatternStrategy(this);
         }
@@ -0,0 +1,175 @@
+package org.emergent.maven.gitver.core.version;
+
+import org.emergent.maven.gitver.core.version.PatternStrategy.PatternToken;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A version pattern compiled into a list of segments, so rendering a version is a single pass over
+ * them with no regex work.
+ * <p>
+ * A pattern is made of {@code %x} tokens and {@code (pre%xsuf)} groups, where a group only renders
+ * when its token's value is neither empty nor {@code 0}. Text between and after matches is kept
+ * as is, while text before the first match is dropped, and a pattern without any match renders as an
+ * empty string.
+ */
+final class PatternTemplate {
+
+    private static final int MAX_CACHED = 256;
+    private static final Map<String, PatternTemplate> CACHE = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, PatternTemplate> eldest) {
+                    return size() > MAX_CACHED;
+                }
+            });
+
+    private final List<Segment> segments;
+
+    private PatternTemplate(List<Segment> segments) {
+        this.segments = segments;
+    }
+
+    /**
+     * Returns the compiled template for the pattern. The least recently used templates are dropped
+     * once more than {@value #MAX_CACHED} distinct patterns are in use.
+     */
+    static PatternTemplate of(String pattern) {
+        return CACHE.computeIfAbsent(pattern, PatternTemplate::compile);
+    }
+
+    String render(ResolvedData resolved) {
+        Values values = new Values(resolved);
+        StringBuilder sb = new StringBuilder(32);
+        for (Segment segment : segments) {
+            segment.appendTo(sb, values);
+        }
+        return sb.toString();
+    }
+
+    static PatternTemplate compile(String pattern) {
+        List<Segment> segments = new ArrayList<>();
+        int priorEnd = -1;
+        int pos = 0;
+        while (pos < pattern.length()) {
+            int start = pos;
+            Segment matched = null;
+            PatternToken token = tokenAt(pattern, pos);
+            if (token != null) {
+                matched = new Token(token);
+                pos += 2;
+            } else if (pattern.charAt(pos) == '(') {
+                int preEnd = skipText(pattern, pos + 1);
+                PatternToken mid = tokenAt(pattern, preEnd);
+                int sufEnd = mid != null ? skipText(pattern, preEnd + 2) : -1;
+                if (mid != null && sufEnd < pattern.length() && pattern.charAt(sufEnd) == ')') {
+                    matched = new Group(pattern.substring(pos + 1, preEnd), mid, pattern.substring(preEnd + 2, sufEnd));
+                    pos = sufEnd + 1;
+                }
+            }
+            if (matched == null) {
+                pos++;
+                continue;
+            }
+            if (priorEnd > -1 && priorEnd < start) {
+                segments.add(new Literal(pattern.substring(priorEnd, start)));
+            }
+            segments.add(matched);
+            priorEnd = pos;
+        }
+        if (priorEnd > -1 && priorEnd < pattern.length()) {
+            segments.add(new Literal(pattern.substring(priorEnd)));
+        }
+        return new PatternTemplate(List.copyOf(segments));
+    }
+
+    private static PatternToken tokenAt(String pattern, int pos) {
+        if (pos + 1 >= pattern.length() || pattern.charAt(pos) != '%') {
+            return null;
+        }
+        String code = String.valueOf(pattern.charAt(pos + 1));
+        for (PatternToken token : PatternToken.values()) {
+            if (token.code().equals(code)) {
+                return token;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the end of the run of characters other than {@code (}, {@code )} and {@code %}.
+     */
+    private static int skipText(String pattern, int pos) {
+        while (pos < pattern.length() && "()%".indexOf(pattern.charAt(pos)) < 0) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private sealed interface Segment permits Literal, Token, Group {
+        void appendTo(StringBuilder sb, Values values);
+    }
+
+    private record Literal(String text) implements Segment {
+        @Override
+        public void appendTo(StringBuilder sb, Values values) {
+            sb.append(text);
+        }
+    }
+
+    private record Token(PatternToken token) implements Segment {
+        @Override
+        public void appendTo(StringBuilder sb, Values values) {
+            sb.append(values.get(token));
+        }
+    }
+
+    private record Group(String prefix, PatternToken token, String suffix) implements Segment {
+        @Override
+        public void appendTo(StringBuilder sb, Values values) {
+            String value = values.get(token);
+            if (!value.isEmpty() && !"0".equals(value)) {
+                sb.append(prefix).append(value).append(suffix);
+            }
+        }
+    }
+
+    /**
+     * The token values of one resolution.
+     */
+    private static final class Values {
+
+        private final ResolvedData resolved;
+        private final String branch;
+        private final boolean releaseBranch;
+        private final boolean omitHash;
+
+        private Values(ResolvedData resolved) {
+            this.resolved = resolved;
+            Set<String> releaseSet = resolved.getReleaseBranchesSet();
+            this.branch = resolved.getBranch() != null
+                    ? resolved.getBranch()
+                    : releaseSet.stream().findFirst().orElse("unknown");
+            this.releaseBranch = releaseSet.contains(branch);
+            this.omitHash = releaseBranch && resolved.getCommits() == 0 && !resolved.isDirty();
+        }
+
+        private String get(PatternToken token) {
+            return switch (token) {
+                case TAG -> String.valueOf(resolved.getTagged());
+                case COMMIT -> String.valueOf(resolved.getCommits());
+                case SNAPSHOT -> resolved.getCommits() > 0 ? "SNAPSHOT" : "";
+                case BRANCH -> String.valueOf(branch);
+                case DEV_BRANCH -> releaseBranch ? "" : String.valueOf(branch);
+                case HASH_SHORT -> omitHash ? "" : String.valueOf(resolved.getHashShort());
+                case HASH -> omitHash ? "" : String.valueOf(resolved.getHash());
+                case DIRTY -> resolved.isDirty() ? "dirty" : "";
+            };
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package org.emergent.maven.gitver.core.version;
+
+import org.emergent.maven.gitver.core.GitverConfig;
+import org.emergent.maven.gitver.core.Util;
+import org.emergent.maven.gitver.core.git.GitExec;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+/**
+ * Resolves each distinct git directory and configuration once per build.
+ * <p>
+ * The backing store is owned by the caller, typically the Maven session, and holds plain string maps
+ * only, so the core extension and the plugin can share it even though each loads its own copy of
+ * these classes. Each entry records which kind of strategy it was resolved to, so an override, such
+ * as the fallback for an exceeded walk budget, comes back as an override.
+ */
+public class ResolutionRegistry {
+
+    /**
+     * The key under which the store is kept in the session data.
+     */
+    public static final String SESSION_KEY = ResolutionRegistry.class.getName();
+
+    private static final String STRATEGY_KEY = "strategy";
+    private static final String PATTERN = "pattern";
+    private static final String OVERRIDE = "override";
+
+    private final ConcurrentMap<String, Map<String, String>> store;
+
+    public ResolutionRegistry(ConcurrentMap<String, Map<String, String>> store) {
+        this.store = store;
+    }
+
+    /**
+     * Returns the registry kept in the given session data, creating its store on first use. Takes the
+     * session data's {@code computeIfAbsent}, as in {@code getRepositorySession().getData()::computeIfAbsent}.
+     */
+    @SuppressWarnings("unchecked")
+    public static ResolutionRegistry forSessionData(BiFunction<Object, Supplier<Object>, Object> computeIfAbsent) {
+        return new ResolutionRegistry((ConcurrentMap<String, Map<String, String>>)
+                computeIfAbsent.apply(SESSION_KEY, ConcurrentHashMap::new));
+    }
+
+    public VersionStrategy getVersionStrategy(File basePath, GitverConfig config) {
+        Optional<VersionStrategy> override = OverrideStrategy.getOverrideStrategy(config);
+        if (override.isPresent()) {
+            return override.get();
+        }
+        String key = GitExec.findGitDir(basePath) + "|" + new TreeMap<>(config.asMap());
+        Map<String, String> resolved = store.computeIfAbsent(key,
+                k -> toEntry(PatternStrategy.getPatternStrategy(config, basePath)));
+        return fromEntry(resolved);
+    }
+
+    private static Map<String, String> toEntry(VersionStrategy strategy) {
+        Map<String, String> entry = new HashMap<>(strategy.asMap());
+        entry.put(STRATEGY_KEY, strategy instanceof OverrideStrategy ? OVERRIDE : PATTERN);
+        return Map.copyOf(entry);
+    }
+
+    private static VersionStrategy fromEntry(Map<String, String> entry) {
+        Map<String, String> props = new HashMap<>(entry);
+        String type = props.remove(STRATEGY_KEY);
+        return OVERRIDE.equals(type) ? Util.newOverrideStrategy(props) : Util.newPatternStrategy(props);
+    }
+}
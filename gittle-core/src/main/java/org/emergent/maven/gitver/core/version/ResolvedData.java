@@ -36,6 +36,19 @@ public class ResolvedData extends GitverConfig {
     int commits = 0;
     @lombok.Builder.Default
     boolean dirty = false;
+    /**
+     * The inputs left unresolved because the version pattern does not need them, as a comma-separated
+     * list of {@code tagged}, {@code commits} and {@code dirty}. They keep their defaults, so they are
+     * left out of the exported properties.
+     */
+    @lombok.Builder.Default
+    String unresolved = "";
+    /**
+     * Set when the history walk ran out of its {@code maxCommits} or {@code walkTimeout} budget, in which
+     * case the version is a fallback rather than rendered from the pattern.
+     */
+    @lombok.Builder.Default
+    boolean walkBudgetExceeded = false;
 
     public String getHashShort() {
         return Optional.ofNullable(hash).map(s -> s.substring(0, Math.min(8, s.length()))).orElse("");
@@ -47,6 +60,11 @@ public class ResolvedData extends GitverConfig {
                 .releaseBranches(getReleaseBranches())
                 .tagNamePattern(getTagNamePattern())
                 .versionPattern(getVersionPattern())
+                .dirtyCheck(getDirtyCheck())
+                .dirtyCheckThreads(getDirtyCheckThreads())
+                .firstParent(isFirstParent())
+                .maxCommits(getMaxCommits())
+                .walkTimeout(getWalkTimeout())
                 .build();
     }
 
@@ -0,0 +1,56 @@
+package org.emergent.maven.gitver.core;
+
+import com.sun.management.ThreadMXBean;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures time and allocation for the tests tagged {@value #TAG}, which are skipped unless the
+ * {@code benchmark} profile is active. Each measurement runs the operation for a warm-up phase first,
+ * then reports the mean time and the bytes allocated by the calling thread per operation.
+ */
+public final class Benchmarks {
+
+    public static final String TAG = "benchmark";
+
+    private static final ThreadMXBean THREADS = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static volatile Object sink;
+
+    private Benchmarks() {
+    }
+
+    public static Result measure(String name, int warmups, int runs, Op op) throws Exception {
+        for (int i = 0; i < warmups; i++) {
+            sink = op.run();
+        }
+        long allocated = THREADS.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < runs; i++) {
+            sink = op.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        allocated = THREADS.getCurrentThreadAllocatedBytes() - allocated;
+        Result result = new Result(name, (double) elapsed / runs, (double) allocated / runs);
+        System.out.println(result);
+        return result;
+    }
+
+    @FunctionalInterface
+    public interface Op {
+        Object run() throws Exception;
+    }
+
+    public record Result(String name, double nanosPerOp, double bytesPerOp) {
+
+        public double opsPerSecond() {
+            return 1e9 / nanosPerOp;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-44s %14.3f us/op %12.0f ops/s %12.1f KB/op",
+                    name, nanosPerOp / 1e3, opsPerSecond(), bytesPerOp / 1024);
+        }
+    }
+}
@@ -88,4 +88,30 @@ class GsonUtilTest {
                 .isNotNull()
                 .isEqualTo(expected);
     }
-}
\ No newline at end of file
+
+    @Test
+    void rebuildsNestedKeysAtAnyDepth() {
+        Map<String, Object> actual = PropCodec.toMap(FlatProperties.from(ImmutableMap.of(
+                "a.b.c", "deep",
+                "a.list.1.name", "first",
+                "a.list.2.name", "second",
+                "a.b.d.1", "x"
+        )));
+        Map<String, Object> expected = Map.of(
+                "a", Map.of(
+                        "b", Map.of("c", "deep", "d", List.of("x")),
+                        "list", List.of(Map.of("name", "first"), Map.of("name", "second"))));
+        assertThat(actual).isEqualTo(expected);
+        assertThat(PropCodec.toProperties(actual).getProperties()).containsOnlyKeys(
+                "a.b.c", "a.b.d.1", "a.list.1.name", "a.list.2.name");
+    }
+
+    @Test
+    void adapterStreamsNestedJson() {
+        Gson gson = new GsonBuilder().registerTypeAdapter(FlatProperties.class, new FlatProperties.GsonAdapter()).create();
+        FlatProperties props = FlatProperties.from(ImmutableMap.of("amap.astring", "x", "alist.1", "y", "alist.2", "z"));
+        String json = gson.toJson(props);
+        assertThat(json).isEqualTo("{\"amap\":{\"astring\":\"x\"},\"alist\":[\"y\",\"z\"]}");
+        assertThat(gson.fromJson(json, FlatProperties.class)).isEqualTo(props);
+    }
+}
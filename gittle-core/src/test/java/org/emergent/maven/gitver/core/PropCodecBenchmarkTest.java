@@ -0,0 +1,113 @@
+package org.emergent.maven.gitver.core;
+
+import com.google.gson.Gson;
+import org.emergent.maven.gitver.core.Benchmarks.Result;
+import org.emergent.maven.gitver.core.version.PatternStrategy;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Encodes and decodes a {@link PatternStrategy} with the hand-written codecs, against a reflective Gson
+ * round trip through a JSON tree, which is what the codecs replaced.
+ */
+@Tag(Benchmarks.TAG)
+class PropCodecBenchmarkTest {
+
+    private static final int WARMUPS = 50_000;
+    private static final int RUNS = 200_000;
+    private static final String PREFIX = "gittle.resolved.";
+
+    private static final Gson GSON = GsonUtil.getGsonBuilder(Map.of()).create();
+
+    @Test
+    void codecsBeatReflectiveRoundTrip() throws Exception {
+        PatternStrategy strategy = PatternStrategy.builder()
+                .releaseBranches("release,stable")
+                .versionPattern("%t(-%B)(-%c)(-%S)(+%h)(.%d)")
+                .dirtyCheck("parallel")
+                .maxCommits(1000)
+                .branch("feature")
+                .hash("10fedcba9876543210fedcba9876543210fedcba")
+                .tagged("1.2.3")
+                .commits(5)
+                .dirty(true)
+                .build();
+        FlatProperties encoded = PropCodec.toProperties(strategy);
+        Map<String, String> reflective = reflectiveEncode(strategy);
+        assertThat(PropCodec.toPatternStrategy(encoded)).isEqualTo(strategy);
+        assertThat(reflectiveDecode(reflective).getVersion()).isEqualTo(strategy.getVersion());
+
+        Result gsonEncode = Benchmarks.measure("encode, reflective Gson", WARMUPS, RUNS, () -> reflectiveEncode(strategy));
+        Result encode = Benchmarks.measure("encode, codec", WARMUPS, RUNS, () -> PropCodec.toProperties(strategy));
+        Result gsonDecode = Benchmarks.measure("decode, reflective Gson", WARMUPS, RUNS, () -> reflectiveDecode(reflective));
+        Result decode = Benchmarks.measure("decode, codec", WARMUPS, RUNS, () -> PropCodec.toPatternStrategy(encoded));
+
+        assertThat(encode.nanosPerOp()).isLessThan(gsonEncode.nanosPerOp());
+        assertThat(encode.bytesPerOp()).isLessThan(gsonEncode.bytesPerOp());
+        assertThat(decode.nanosPerOp()).isLessThan(gsonDecode.nanosPerOp());
+        assertThat(decode.bytesPerOp()).isLessThan(gsonDecode.bytesPerOp());
+    }
+
+    /**
+     * Flattens and rebuilds nested configurations of about 2,500 and 10,000 keys. Both passes are
+     * linear, so the cost per key must not grow with the size, as it did when every level was
+     * copied and re-checked.
+     */
+    @Test
+    void flattenAndRebuildScaleLinearly() throws Exception {
+        Map<String, Object> small = nestedConfig(140);
+        Map<String, Object> large = nestedConfig(560);
+        Map<String, String> smallFlat = PropCodec.flatten(small);
+        Map<String, String> largeFlat = PropCodec.flatten(large);
+        assertThat(PropCodec.rebuild(smallFlat)).isEqualTo(small);
+        assertThat(PropCodec.rebuild(largeFlat)).isEqualTo(large);
+
+        Result flattenSmall = Benchmarks.measure("flatten, " + smallFlat.size() + " keys", 200, 1000, () -> PropCodec.flatten(small));
+        Result flattenLarge = Benchmarks.measure("flatten, " + largeFlat.size() + " keys", 50, 250, () -> PropCodec.flatten(large));
+        Result rebuildSmall = Benchmarks.measure("rebuild, " + smallFlat.size() + " keys", 200, 1000, () -> PropCodec.rebuild(smallFlat));
+        Result rebuildLarge = Benchmarks.measure("rebuild, " + largeFlat.size() + " keys", 50, 250, () -> PropCodec.rebuild(largeFlat));
+
+        double growth = (double) largeFlat.size() / smallFlat.size();
+        assertThat(flattenLarge.bytesPerOp()).isLessThan(flattenSmall.bytesPerOp() * growth * 1.5);
+        assertThat(rebuildLarge.bytesPerOp()).isLessThan(rebuildSmall.bytesPerOp() * growth * 1.5);
+    }
+
+    /** Eighteen keys per module, nested up to six levels deep, with lists of maps and of values. */
+    private static Map<String, Object> nestedConfig(int modules) {
+        Map<String, Object> root = new LinkedHashMap<>();
+        for (int m = 0; m < modules; m++) {
+            List<Object> plugins = new ArrayList<>();
+            for (int p = 0; p < 4; p++) {
+                Map<String, Object> plugin = new LinkedHashMap<>();
+                plugin.put("id", "plugin-" + p);
+                plugin.put("goals", List.of("compile", "test"));
+                plugin.put("configuration", Map.of("deep", Map.of("nested", Map.of("value", m + "." + p))));
+                plugins.add(plugin);
+            }
+            Map<String, Object> module = new LinkedHashMap<>();
+            module.put("name", "module-" + m);
+            module.put("version", "1.0." + m);
+            module.put("plugins", plugins);
+            root.put("module" + m, module);
+        }
+        return root;
+    }
+
+    private static Map<String, String> reflectiveEncode(PatternStrategy strategy) {
+        Map<String, Object> tree = PropCodec.toMap(GSON.toJsonTree(strategy, PatternStrategy.class));
+        return new TreeMap<>(Util.appendPrefix(PREFIX, PropCodec.flatten(tree)));
+    }
+
+    private static PatternStrategy reflectiveDecode(Map<String, String> properties) {
+        Map<String, Object> tree = PropCodec.rebuild(Util.removePrefix(PREFIX, properties));
+        return GSON.fromJson(PropCodec.toJsonTree(tree), PatternStrategy.class);
+    }
+}
@@ -5,6 +5,7 @@ import com.google.gson.GsonBuilder;
 import com.google.gson.reflect.TypeToken;
 import org.codehaus.plexus.util.xml.Xpp3Dom;
 import org.codehaus.plexus.util.xml.Xpp3DomBuilder;
+import org.emergent.maven.gitver.core.version.OverrideStrategy;
 import org.emergent.maven.gitver.core.version.ResolvedData;
 import org.junit.jupiter.api.Test;
 
@@ -115,6 +116,41 @@ class PropCodecTest {
                 .isEqualTo(GSON.toJson(expected, GitverConfig.class));
     }
 
+    @Test
+    void toOverrideStrategy() {
+        OverrideStrategy expected = OverrideStrategy.from("4.5.6");
+        Map<String, String> props = PropCodec.toProperties(expected).getProperties();
+        assertThat(props).isEqualTo(Map.of("gittle.newVersion", "4.5.6"));
+        assertThat(PropCodec.toOverrideStrategy(FlatProperties.from(props))).isEqualTo(expected);
+    }
+
+    @Test
+    void overrideStrategyConfig() {
+        GitverConfig expected = GitverConfig.builder()
+                .newVersion("4.5.6")
+                .dirtyCheck("parallel")
+                .dirtyCheckThreads(2)
+                .firstParent(true)
+                .maxCommits(100)
+                .walkTimeout(30)
+                .build();
+        OverrideStrategy strategy = PropCodec.toOverrideStrategy(PropCodec.toProperties(expected));
+        assertThat(strategy.getConfig()).isEqualTo(expected);
+    }
+
+    @Test
+    void toGitverConfig_unprefixedKeys() {
+        GitverConfig actual = PropCodec.toGitverConfig(FlatProperties.from(Map.of(
+                "versionPattern", "%t",
+                "dirtyCheckThreads", "2",
+                "gittle.newVersion", "0.1.2")));
+        assertThat(actual).isEqualTo(GitverConfig.builder()
+                .versionPattern("%t")
+                .dirtyCheckThreads(2)
+                .newVersion("0.1.2")
+                .build());
+    }
+
     @Test
     void toXml_GitverConfig() throws Exception {
         Xpp3Dom expected = Xpp3DomBuilder.build(new StringReader("""
@@ -124,6 +160,11 @@ class PropCodecTest {
                   <releaseBranches>release,stable</releaseBranches>
                   <tagNamePattern>v?([0-9]+\\.[0-9]+\\.[0-9]+)</tagNamePattern>
                   <versionPattern>%t(-%B)(-%c)(-%S)(+%h)(.%d)</versionPattern>
+                  <dirtyCheck>tracked</dirtyCheck>
+                  <dirtyCheckThreads>0</dirtyCheckThreads>
+                  <firstParent>false</firstParent>
+                  <maxCommits>0</maxCommits>
+                  <walkTimeout>0</walkTimeout>
                 </configuration>
                 """));
         assertThat(PropCodec.toXml(getGitverConfig())).isNotNull().isEqualTo(expected);
@@ -0,0 +1,90 @@
+package org.emergent.maven.gitver.core.git;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.emergent.maven.gitver.core.GitverConfig;
+import org.emergent.maven.gitver.core.git.CommitWalker.WalkResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BitmapCounterTest {
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    public void countsMergedHistoryFromBitmaps() throws Exception {
+        try (Git git = Git.init().setDirectory(tempDir).setInitialBranch("main").call()) {
+            ObjectId[] ids = createMergedHistory(git);
+            ObjectId tagged = ids[0];
+            ObjectId head = ids[1];
+            try (ObjectReader reader = git.getRepository().newObjectReader()) {
+                assertThat(BitmapCounter.count(git.getRepository(), reader, head, tagged)).isEmpty();
+            }
+
+            git.gc().call();
+            try (ObjectReader reader = git.getRepository().newObjectReader()) {
+                assertThat(BitmapCounter.count(git.getRepository(), reader, head, tagged)).hasValue(3);
+            }
+            assertThat(walk(git, head).commits()).isEqualTo(3);
+        }
+    }
+
+    @Test
+    public void countsCommitsMadeSinceTheRepack() throws Exception {
+        try (Git git = Git.init().setDirectory(tempDir).setInitialBranch("main").call()) {
+            ObjectId tagged = createMergedHistory(git)[0];
+            git.gc().call();
+            ObjectId head = commit(git, "after gc").getId();
+            try (ObjectReader reader = git.getRepository().newObjectReader()) {
+                assertThat(reader.getBitmapIndex().getBitmap(head)).isNull();
+                assertThat(BitmapCounter.count(git.getRepository(), reader, head, tagged)).hasValue(4);
+            }
+            assertThat(walk(git, head).commits()).isEqualTo(4);
+        }
+    }
+
+    @Test
+    public void fallsBackToWalkingWithoutBitmaps() throws Exception {
+        try (Git git = Git.init().setDirectory(tempDir).setInitialBranch("main").call()) {
+            ObjectId[] ids = createMergedHistory(git);
+            WalkResult result = walk(git, ids[1]);
+            assertThat(result.getTag()).contains("1.0.0");
+            assertThat(result.taggedCommit()).isEqualTo(ids[0]);
+            assertThat(result.commits()).isEqualTo(3);
+        }
+    }
+
+    /**
+     * Creates {@code base -> side} and {@code base -> tagged -> merge(side) -> head} and returns the
+     * tagged commit and head, so {@code tagged..head} holds the side commit, the merge and head.
+     */
+    private static ObjectId[] createMergedHistory(Git git) throws Exception {
+        commit(git, "base");
+        git.branchCreate().setName("side").call();
+        RevCommit tagged = commit(git, "tagged");
+        git.tag().setName("v1.0.0").setObjectId(tagged).call();
+        git.checkout().setName("side").call();
+        RevCommit side = commit(git, "side");
+        git.checkout().setName("main").call();
+        git.merge().include(side).setCommit(true).setMessage("merge").call();
+        RevCommit head = commit(git, "head");
+        return new ObjectId[]{tagged.getId(), head.getId()};
+    }
+
+    private static WalkResult walk(Git git, ObjectId head) throws Exception {
+        try (CommitWalker walker = new CommitWalker(git.getRepository())) {
+            return walker.findTag(head, new TagProvider(GitverConfig.builder().build(), git));
+        }
+    }
+
+    private static RevCommit commit(Git git, String message) throws Exception {
+        return git.commit().setAllowEmpty(true).setSign(false).setMessage(message).call();
+    }
+}
@@ -0,0 +1,162 @@
+package org.emergent.maven.gitver.core.git;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.ConfigConstants;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.lib.TreeFormatter;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.emergent.maven.gitver.core.Benchmarks;
+import org.emergent.maven.gitver.core.Benchmarks.Result;
+import org.emergent.maven.gitver.core.GitverConfig;
+import org.emergent.maven.gitver.core.git.CommitWalker.WalkResult;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tag search over a linear history with the tag nine tenths of the way down, comparing the
+ * {@code LogCommand} loop that version resolution used to run with {@link CommitWalker}, with and
+ * without a commit-graph. The history has {@code gittle.benchmark.commits} commits, 20000 by default.
+ */
+@Tag(Benchmarks.TAG)
+public class CommitWalkerBenchmarkTest {
+
+    private static final int COMMITS = Integer.getInteger("gittle.benchmark.commits", 20_000);
+    private static final int WARMUPS = 5;
+    private static final int RUNS = 20;
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    public void commitGraphSpeedsUpTagSearch() throws Exception {
+        try (Git git = Git.init().setDirectory(tempDir).call()) {
+            History history = History.create(git);
+            Repository repository = git.getRepository();
+
+            setCommitGraph(repository, false);
+            Result log = Benchmarks.measure("LogCommand", WARMUPS, RUNS, history::log);
+            Result plain = Benchmarks.measure("CommitWalker, no commit-graph", WARMUPS, RUNS, history::findTag);
+            WalkResult expected = history.findTag();
+            setCommitGraph(repository, null);
+            Result graph = Benchmarks.measure("CommitWalker, commit-graph", WARMUPS, RUNS, history::findTag);
+
+            assertThat(history.findTag()).isEqualTo(expected);
+            assertThat(expected.commits()).isEqualTo(history.log());
+            assertThat(graph.nanosPerOp()).isLessThan(plain.nanosPerOp());
+            assertThat(graph.nanosPerOp()).isLessThan(log.nanosPerOp());
+        }
+    }
+
+    /**
+     * Allocation per visited commit, the figure a {@code -prof gc} run reports per operation divided
+     * by the commits walked. With a commit-graph the walker never inflates a commit object.
+     */
+    @Test
+    public void walkAllocatesLessPerCommit() throws Exception {
+        try (Git git = Git.init().setDirectory(tempDir).call()) {
+            History history = History.create(git);
+            Repository repository = git.getRepository();
+            int visited = history.log() + 1;
+
+            setCommitGraph(repository, false);
+            Result log = Benchmarks.measure("LogCommand", WARMUPS, RUNS, history::log);
+            Result plain = Benchmarks.measure("CommitWalker, no commit-graph", WARMUPS, RUNS, history::findTag);
+            setCommitGraph(repository, null);
+            Result graph = Benchmarks.measure("CommitWalker, commit-graph", WARMUPS, RUNS, history::findTag);
+            for (Result result : List.of(log, plain, graph)) {
+                System.out.printf("%-44s %12.1f B/commit%n", result.name(), result.bytesPerOp() / visited);
+            }
+
+            assertThat(graph.bytesPerOp()).isLessThan(log.bytesPerOp());
+            assertThat(graph.bytesPerOp()).isLessThan(plain.bytesPerOp());
+        }
+    }
+
+    /**
+     * Sets {@code core.commitGraph}. An explicit {@code false} keeps both JGit and
+     * {@link CommitGraphReader} off the graph, while {@code null} leaves the choice to the reader.
+     */
+    private static void setCommitGraph(Repository repository, Boolean enabled) throws IOException {
+        StoredConfig config = repository.getConfig();
+        if (enabled == null) {
+            config.unset(ConfigConstants.CONFIG_CORE_SECTION, null, ConfigConstants.CONFIG_COMMIT_GRAPH);
+        } else {
+            config.setBoolean(ConfigConstants.CONFIG_CORE_SECTION, null, ConfigConstants.CONFIG_COMMIT_GRAPH, enabled);
+        }
+        config.save();
+    }
+
+    private record History(Git git, ObjectId head, ObjectId tagged, TagProvider tagProvider) {
+
+        /**
+         * Inserts the commits directly, tags one, and packs the repository with a commit-graph, so
+         * that every variant reads from the same pack.
+         */
+        static History create(Git git) throws Exception {
+            Repository repository = git.getRepository();
+            ObjectId[] ids = new ObjectId[COMMITS];
+            PersonIdent ident = new PersonIdent("gittle", "gittle@example.com");
+            try (ObjectInserter inserter = repository.newObjectInserter()) {
+                ObjectId tree = inserter.insert(new TreeFormatter());
+                for (int i = 0; i < COMMITS; i++) {
+                    PersonIdent when = new PersonIdent(ident, Instant.ofEpochSecond(1_700_000_000L + i));
+                    CommitBuilder commit = new CommitBuilder();
+                    commit.setTreeId(tree);
+                    if (i > 0) {
+                        commit.setParentId(ids[i - 1]);
+                    }
+                    commit.setAuthor(when);
+                    commit.setCommitter(when);
+                    commit.setMessage("commit " + i);
+                    ids[i] = inserter.insert(commit);
+                }
+                inserter.flush();
+            }
+            RefUpdate update = repository.updateRef(Constants.HEAD);
+            update.setNewObjectId(ids[COMMITS - 1]);
+            update.forceUpdate();
+            ObjectId tagged = ids[COMMITS / 10];
+            git.tag().setName("v1.0.0").setObjectId(repository.parseCommit(tagged)).call();
+
+            StoredConfig config = repository.getConfig();
+            config.setBoolean(ConfigConstants.CONFIG_CORE_SECTION, null, ConfigConstants.CONFIG_COMMIT_GRAPH, true);
+            config.setBoolean(ConfigConstants.CONFIG_GC_SECTION, null, ConfigConstants.CONFIG_KEY_WRITE_COMMIT_GRAPH, true);
+            config.save();
+            git.gc().call();
+            assertThat(new File(repository.getDirectory(), "objects/info/commit-graph")).isFile();
+            return new History(git, ids[COMMITS - 1], tagged, new TagProvider(GitverConfig.builder().build(), git));
+        }
+
+        int log() throws Exception {
+            int count = 0;
+            for (RevCommit commit : git.log().add(head).call()) {
+                if (commit.equals(tagged)) {
+                    break;
+                }
+                count++;
+            }
+            return count;
+        }
+
+        WalkResult findTag() throws IOException {
+            try (CommitWalker walker = new CommitWalker(git.getRepository())) {
+                return walker.findTag(head, tagProvider);
+            }
+        }
+    }
+}
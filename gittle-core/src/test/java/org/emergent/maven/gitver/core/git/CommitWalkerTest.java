@@ -0,0 +1,315 @@
+package org.emergent.maven.gitver.core.git;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.MergeCommand.FastForwardMode;
+import org.eclipse.jgit.api.ResetCommand.ResetType;
+import org.eclipse.jgit.internal.storage.commitgraph.CommitGraph;
+import org.eclipse.jgit.lib.ConfigConstants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.emergent.maven.gitver.core.GitverConfig;
+import org.emergent.maven.gitver.core.git.CommitWalker.WalkResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class CommitWalkerTest {
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    public void countsCommitsSinceTag() throws Exception {
+        try (Git git = Git.init().setDirectory(tempDir).call()) {
+            commit(git);
+            RevCommit tagged = commit(git);
+            git.tag().setName("v1.2.3").setObjectId(tagged).setAnnotated(true).setMessage("release").setSigned(false).call();
+            commit(git);
+            ObjectId head = commit(git);
+
+            WalkResult result = walk(git, head);
+            assertThat(result.getTag()).contains("1.2.3");
+            assertThat(result.taggedCommit()).isEqualTo(tagged.getId());
+            assertThat(result.commits()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    public void countsWholeHistoryWithoutTag() throws Exception {
+        try (Git git = Git.init().setDirectory(tempDir).call()) {
+            commit(git);
+            commit(git);
+            ObjectId head = commit(git);
+
+            WalkResult result = walk(git, head);
+            assertThat(result.getTag()).isEmpty();
+            assertThat(result.commits()).isEqualTo(3);
+        }
+    }
+
+    @Test
+    public void picksGreatestVersionTaggedOnCommit() throws Exception {
+        try (Git git = Git.init().setDirectory(tempDir).call()) {
+            RevCommit tagged = commit(git);
+            git.tag().setName("v1.10.0").setObjectId(tagged).call();
+            git.tag().setName("v1.9.0").setObjectId(tagged).call();
+            ObjectId head = commit(git);
+
+            assertThat(walk(git, head).getTag()).contains("1.10.0");
+        }
+    }
+
+    @Test
+    public void picksNearestTagAcrossMerges() throws Exception {
+        try (Git git = Git.init().setDirectory(tempDir).setInitialBranch("main").call()) {
+            RevCommit root = commit(git, "root", 1);
+            for (int i = 2; i <= 6; i++) {
+                commit(git, "main " + i, i);
+            }
+            RevCommit tagged = commit(git, "release", 7);
+            git.tag().setName("v1.0.0").setObjectId(tagged).call();
+            commit(git, "main 8", 8);
+            // a newer but older-based tag, brought in by the merge
+            git.checkout().setCreateBranch(true).setName("side").setStartPoint(root).call();
+            RevCommit sideTagged = commit(git, "side release", 20);
+            git.tag().setName("v0.9.0").setObjectId(sideTagged).call();
+            commit(git, "side 21", 21);
+            git.checkout().setName("main").call();
+            ObjectId head = git.merge().include(git.getRepository().resolve("side"))
+                    .setFastForward(FastForwardMode.NO_FF).setMessage("merge").call().getNewHead();
+
+            WalkResult expected = new WalkResult("1.0.0", tagged.getId(), 4);
+            assertThat(walk(git, head)).isEqualTo(expected);
+
+            StoredConfig config = git.getRepository().getConfig();
+            config.setBoolean(ConfigConstants.CONFIG_CORE_SECTION, null, ConfigConstants.CONFIG_COMMIT_GRAPH, true);
+            config.setBoolean(ConfigConstants.CONFIG_GC_SECTION, null, ConfigConstants.CONFIG_KEY_WRITE_COMMIT_GRAPH, true);
+            config.save();
+            git.gc().call();
+            assertThat(walk(git, head)).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    public void followsFirstParentsOnly() throws Exception {
+        try (Git git = Git.init().setDirectory(tempDir).setInitialBranch("main").call()) {
+            RevCommit tagged = commit(git, "release", 1);
+            git.tag().setName("v1.0.0").setObjectId(tagged).call();
+            commit(git, "main 2", 2);
+            git.checkout().setCreateBranch(true).setName("feature").setStartPoint(tagged).call();
+            RevCommit featureTagged = commit(git, "feature 3", 3);
+            git.tag().setName("v1.1.0").setObjectId(featureTagged).call();
+            commit(git, "feature 4", 4);
+            git.checkout().setName("main").call();
+            ObjectId previousHead = git.merge().include(git.getRepository().resolve("feature"))
+                    .setFastForward(FastForwardMode.NO_FF).setMessage("merge").call().getNewHead();
+            ObjectId head = commit(git);
+
+            assertThat(walk(git, head).getTag()).contains("1.1.0");
+            try (CommitWalker walker = new CommitWalker(git.getRepository(), GitverConfig.builder().firstParent(true).build())) {
+                TagProvider tagProvider = new TagProvider(GitverConfig.builder().build(), git);
+                WalkResult result = walker.findTag(head, tagProvider);
+                assertThat(result).isEqualTo(new WalkResult("1.0.0", tagged.getId(), 3));
+                assertThat(walker.countBetween(head, tagged)).isEqualTo(3);
+
+                WalkResult previous = walker.findTag(previousHead, tagProvider);
+                assertThat(walker.extend(previous, previousHead, head, tagProvider)).contains(result);
+                // the previous HEAD is only reachable through the merged branch
+                assertThat(walker.extend(walker.findTag(featureTagged, tagProvider), featureTagged, head, tagProvider))
+                        .isEmpty();
+            }
+        }
+    }
+
+    @Test
+    public void stopsWhenBudgetIsExceeded() throws Exception {
+        try (Git git = Git.init().setDirectory(tempDir).call()) {
+            commit(git);
+            commit(git);
+            ObjectId head = commit(git);
+
+            GitverConfig config = GitverConfig.builder().maxCommits(3).build();
+            TagProvider tagProvider = new TagProvider(GitverConfig.builder().build(), git);
+            try (CommitWalker walker = new CommitWalker(git.getRepository(), config)) {
+                assertThat(walker.findTag(head, tagProvider).commits()).isEqualTo(3);
+            }
+            try (CommitWalker walker = new CommitWalker(git.getRepository(), config.toBuilder().maxCommits(2).build())) {
+                assertThatThrownBy(() -> walker.findTag(head, tagProvider))
+                        .isInstanceOf(WalkBudgetExceededException.class)
+                        .extracting("commits").isEqualTo(2);
+            }
+        }
+    }
+
+    @Test
+    public void budgetsExtensions() throws Exception {
+        try (Git git = Git.init().setDirectory(tempDir).call()) {
+            ObjectId previousHead = commit(git);
+            WalkResult previous = walk(git, previousHead);
+            commit(git);
+            commit(git);
+            ObjectId head = commit(git);
+
+            TagProvider tagProvider = new TagProvider(GitverConfig.builder().build(), git);
+            for (boolean firstParent : new boolean[]{false, true}) {
+                GitverConfig config = GitverConfig.builder().firstParent(firstParent).maxCommits(2).build();
+                try (CommitWalker walker = new CommitWalker(git.getRepository(), config)) {
+                    assertThatThrownBy(() -> walker.extend(previous, previousHead, head, tagProvider))
+                            .isInstanceOf(WalkBudgetExceededException.class);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void readsCommitGraphWhenPresent() throws Exception {
+        try (Git git = Git.init().setDirectory(tempDir).call()) {
+            RevCommit tagged = commit(git);
+            git.tag().setName("v0.1.0").setObjectId(tagged).call();
+            commit(git);
+            ObjectId head = commit(git);
+            WalkResult expected = walk(git, head);
+
+            StoredConfig config = git.getRepository().getConfig();
+            config.setBoolean(ConfigConstants.CONFIG_CORE_SECTION, null, ConfigConstants.CONFIG_COMMIT_GRAPH, true);
+            config.setBoolean(ConfigConstants.CONFIG_GC_SECTION, null, ConfigConstants.CONFIG_KEY_WRITE_COMMIT_GRAPH, true);
+            config.save();
+            git.gc().call();
+            assertThat(new File(git.getRepository().getDirectory(), "objects/info/commit-graph")).isFile();
+            config.unset(ConfigConstants.CONFIG_CORE_SECTION, null, ConfigConstants.CONFIG_COMMIT_GRAPH);
+            config.save();
+
+            try (ObjectReader reader = git.getRepository().newObjectReader()) {
+                assertThat(reader.getCommitGraph()).isEmpty();
+            }
+            try (ObjectReader reader = CommitGraphReader.open(git.getRepository())) {
+                CommitGraph graph = reader.getCommitGraph().orElseThrow();
+                int generation = graph.getCommitData(graph.findGraphPosition(head)).getGeneration();
+                assertThat(generation).isEqualTo(3);
+            }
+            assertThat(walk(git, head)).isEqualTo(expected);
+            // the pooled repository's configuration must not be changed for its other users
+            assertThat(git.getRepository().getConfig()
+                    .getString(ConfigConstants.CONFIG_CORE_SECTION, null, ConfigConstants.CONFIG_COMMIT_GRAPH)).isNull();
+        }
+    }
+
+    @Test
+    public void readsSplitCommitGraphChain() throws Exception {
+        try (Git git = Git.init().setDirectory(tempDir).call()) {
+            RevCommit tagged = commit(git);
+            git.tag().setName("v0.1.0").setObjectId(tagged).call();
+            RevCommit base = commit(git);
+            assumeTrue(runGit("commit-graph", "write", "--reachable", "--split"), "git is not available");
+            commit(git);
+            ObjectId head = commit(git);
+            assertThat(runGit("commit-graph", "write", "--reachable", "--split=no-merge")).isTrue();
+
+            File graphs = new File(git.getRepository().getDirectory(), "objects/info/commit-graphs");
+            assertThat(new File(git.getRepository().getDirectory(), "objects/info/commit-graph")).doesNotExist();
+            assertThat(new File(graphs, "commit-graph-chain")).content().hasLineCount(2);
+
+            try (ObjectReader reader = CommitGraphReader.open(git.getRepository())) {
+                CommitGraph graph = reader.getCommitGraph().orElseThrow();
+                assertThat(graph.getCommitCnt()).isEqualTo(4);
+                CommitGraph.CommitData data = graph.getCommitData(graph.findGraphPosition(head));
+                assertThat(data.getGeneration()).isEqualTo(4);
+                CommitGraph.CommitData parent = graph.getCommitData(data.getParents()[0]);
+                // the parent of the top layer's first commit lives in the base layer
+                assertThat(graph.getObjectId(parent.getParents()[0])).isEqualTo(base.getId());
+            }
+            WalkResult result = walk(git, head);
+            assertThat(result.taggedCommit()).isEqualTo(tagged.getId());
+            assertThat(result.commits()).isEqualTo(3);
+        }
+    }
+
+    private boolean runGit(String... args) throws Exception {
+        List<String> command = new ArrayList<>(List.of("git", "-C", tempDir.getAbsolutePath()));
+        command.addAll(List.of(args));
+        try {
+            Process process = new ProcessBuilder(command).redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+            return process.waitFor() == 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Test
+    public void extendsPreviousResultWithNewCommits() throws Exception {
+        try (Git git = Git.init().setDirectory(tempDir).call()) {
+            RevCommit tagged = commit(git);
+            git.tag().setName("v2.0.0").setObjectId(tagged).call();
+            ObjectId previousHead = commit(git);
+            WalkResult previous = walk(git, previousHead);
+            commit(git);
+            ObjectId head = commit(git);
+
+            try (CommitWalker walker = new CommitWalker(git.getRepository())) {
+                TagProvider tagProvider = new TagProvider(GitverConfig.builder().build(), git);
+                assertThat(walker.extend(previous, previousHead, head, tagProvider)).contains(walk(git, head));
+                assertThat(walker.extend(previous, previousHead, head, tagProvider).map(WalkResult::commits)).contains(3);
+            }
+        }
+    }
+
+    @Test
+    public void refusesToExtendAcrossRewrittenHistory() throws Exception {
+        try (Git git = Git.init().setDirectory(tempDir).call()) {
+            RevCommit base = commit(git);
+            ObjectId previousHead = commit(git);
+            WalkResult previous = walk(git, previousHead);
+            git.reset().setMode(ResetType.HARD).setRef(base.getName()).call();
+            ObjectId head = git.commit().setAllowEmpty(true).setSign(false).setMessage("rewritten").call();
+
+            try (CommitWalker walker = new CommitWalker(git.getRepository())) {
+                TagProvider tagProvider = new TagProvider(GitverConfig.builder().build(), git);
+                assertThat(walker.extend(previous, previousHead, head, tagProvider)).isEmpty();
+            }
+        }
+    }
+
+    @Test
+    public void refusesToExtendPastNewTag() throws Exception {
+        try (Git git = Git.init().setDirectory(tempDir).call()) {
+            ObjectId previousHead = commit(git);
+            WalkResult previous = walk(git, previousHead);
+            RevCommit head = commit(git);
+            git.tag().setName("v3.0.0").setObjectId(head).call();
+
+            try (CommitWalker walker = new CommitWalker(git.getRepository())) {
+                TagProvider tagProvider = new TagProvider(GitverConfig.builder().build(), git);
+                assertThat(walker.extend(previous, previousHead, head, tagProvider)).isEmpty();
+            }
+        }
+    }
+
+    private static WalkResult walk(Git git, ObjectId head) throws Exception {
+        try (CommitWalker walker = new CommitWalker(git.getRepository())) {
+            return walker.findTag(head, new TagProvider(GitverConfig.builder().build(), git));
+        }
+    }
+
+    private static RevCommit commit(Git git) throws Exception {
+        return git.commit().setAllowEmpty(true).setSign(false).setMessage("commit").call();
+    }
+
+    private static RevCommit commit(Git git, String message, long epochSecond) throws Exception {
+        PersonIdent ident = new PersonIdent(new PersonIdent("gittle", "gittle@example.com"), Instant.ofEpochSecond(epochSecond));
+        return git.commit().setAllowEmpty(true).setSign(false).setMessage(message)
+                .setAuthor(ident).setCommitter(ident).call();
+    }
+}
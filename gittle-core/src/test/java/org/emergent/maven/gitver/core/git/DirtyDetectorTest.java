@@ -0,0 +1,166 @@
+package org.emergent.maven.gitver.core.git;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.util.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DirtyDetectorTest {
+
+    @TempDir
+    File tempDir;
+
+    @TempDir
+    File upstreamDir;
+
+    private Git git;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        git = Git.init().setDirectory(tempDir).call();
+        write("README.md", "readme");
+        write("src/Main.java", "class Main {}");
+        write(".gitignore", "target/");
+        git.add().addFilepattern(".").call();
+        git.commit().setSign(false).setMessage("initial").call();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        git.close();
+    }
+
+    @Test
+    public void cleanWorktree() throws Exception {
+        assertThat(isDirty()).isFalse();
+    }
+
+    @Test
+    public void untrackedFilesAreIgnored() throws Exception {
+        write("target/classes/Main.class", "bytes");
+        write("notes/todo.txt", "todo");
+        write("scratch.txt", "scratch");
+        assertThat(isDirty()).isFalse();
+    }
+
+    @Test
+    public void modifiedFile() throws Exception {
+        write("src/Main.java", "class Main { }");
+        assertThat(isDirty()).isTrue();
+    }
+
+    @Test
+    public void missingFile() throws Exception {
+        Files.delete(tempDir.toPath().resolve("README.md"));
+        assertThat(isDirty()).isTrue();
+    }
+
+    @Test
+    public void stagedAddition() throws Exception {
+        write("src/Other.java", "class Other {}");
+        git.add().addFilepattern("src/Other.java").call();
+        assertThat(isDirty()).isTrue();
+    }
+
+    @Test
+    public void stagedRemoval() throws Exception {
+        git.rm().setCached(true).addFilepattern("README.md").call();
+        assertThat(isDirty()).isTrue();
+    }
+
+    @Test
+    public void skipWorktreeEntriesAreNotCompared() throws Exception {
+        setSkipWorkTree(git.getRepository().getIndexFile().toPath(), "README.md");
+        assertThat(git.getRepository().readDirCache().getEntry("README.md").isSkipWorkTree()).isTrue();
+        Files.delete(tempDir.toPath().resolve("README.md"));
+        assertThat(isDirty()).isFalse();
+    }
+
+    @Test
+    public void submoduleChanges() throws Exception {
+        try (Git upstream = Git.init().setDirectory(upstreamDir).call()) {
+            Files.writeString(upstreamDir.toPath().resolve("lib.txt"), "lib");
+            upstream.add().addFilepattern(".").call();
+            upstream.commit().setSign(false).setMessage("lib").call();
+        }
+        git.submoduleAdd().setPath("sub").setURI(upstreamDir.toURI().toString()).call().close();
+        git.commit().setSign(false).setMessage("add submodule").call();
+        assertThat(isDirty()).isFalse();
+
+        write("sub/lib.txt", "changed");
+        assertThat(isDirty()).isTrue();
+    }
+
+    @Test
+    public void uninitializedSubmoduleIsClean() throws Exception {
+        try (Git upstream = Git.init().setDirectory(upstreamDir).call()) {
+            upstream.commit().setSign(false).setAllowEmpty(true).setMessage("lib").call();
+        }
+        git.submoduleAdd().setPath("sub").setURI(upstreamDir.toURI().toString()).call().close();
+        git.commit().setSign(false).setMessage("add submodule").call();
+        FileUtils.delete(tempDir.toPath().resolve("sub").toFile(), FileUtils.RECURSIVE);
+        Files.createDirectory(tempDir.toPath().resolve("sub"));
+        assertThat(isDirty()).isFalse();
+    }
+
+    private boolean isDirty() throws Exception {
+        return new DirtyDetector(git.getRepository()).isDirty();
+    }
+
+    /**
+     * Rewrites a version 2 index as version 3 with the skip-worktree flag set on one entry, since JGit
+     * can read the flag but not set it.
+     */
+    static void setSkipWorkTree(Path indexFile, String path) throws Exception {
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(indexFile));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] header = new byte[12];
+        in.get(header);
+        ByteBuffer.wrap(header).putInt(4, 3);
+        out.write(header);
+        int entries = ByteBuffer.wrap(header).getInt(8);
+        for (int ii = 0; ii < entries; ii++) {
+            byte[] stat = new byte[62];
+            in.get(stat);
+            int flags = ByteBuffer.wrap(stat).getShort(60) & 0xffff;
+            byte[] name = new byte[flags & 0xfff];
+            in.get(name);
+            in.position(in.position() + (8 - (62 + name.length) % 8));
+            boolean target = path.equals(new String(name, StandardCharsets.UTF_8));
+            if (target) {
+                ByteBuffer.wrap(stat).putShort(60, (short) (flags | 0x4000));
+            }
+            out.write(stat);
+            int length = stat.length;
+            if (target) {
+                out.write(new byte[]{0x40, 0});
+                length += 2;
+            }
+            out.write(name);
+            out.write(new byte[8 - (length + name.length) % 8]);
+        }
+        byte[] extensions = new byte[in.remaining() - 20];
+        in.get(extensions);
+        out.write(extensions);
+        out.write(MessageDigest.getInstance("SHA-1").digest(out.toByteArray()));
+        Files.write(indexFile, out.toByteArray());
+    }
+
+    private void write(String path, String content) throws Exception {
+        Path file = tempDir.toPath().resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+}
@@ -0,0 +1,128 @@
+package org.emergent.maven.gitver.core.git;
+
+import org.eclipse.jgit.api.Git;
+import org.emergent.maven.gitver.core.Util;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ParallelDirtyDetectorTest {
+
+    @TempDir
+    File tempDir;
+
+    @TempDir
+    File upstreamDir;
+
+    private Git git;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        git = Git.init().setDirectory(tempDir).call();
+        for (String dir : List.of("a", "b/c", "b/d", "e")) {
+            for (int ii = 0; ii < 5; ii++) {
+                write(dir + "/file" + ii + ".txt", dir + ii);
+            }
+        }
+        write("README.md", "readme");
+        git.add().addFilepattern(".").call();
+        git.commit().setSign(false).setMessage("initial").call();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        git.close();
+    }
+
+    @Test
+    public void splitsOnDirectoryBoundaries() throws Exception {
+        List<List<String>> ranges = ParallelDirtyDetector.split(git.getRepository().readDirCache(), 4);
+        assertThat(ranges).hasSize(3);
+        assertThat(ranges.get(0)).containsExactly(
+                "README.md", "a/file0.txt", "a/file1.txt", "a/file2.txt", "a/file3.txt", "a/file4.txt");
+        assertThat(ranges.get(1)).hasSize(10).allMatch(p -> p.startsWith("b/"));
+        assertThat(ranges.get(2)).hasSize(5).allMatch(p -> p.startsWith("e/"));
+    }
+
+    @Test
+    public void cleanWithUntrackedFiles() throws Exception {
+        write("target/out.txt", "out");
+        assertThat(isDirty()).isFalse();
+    }
+
+    @Test
+    public void modifiedFile() throws Exception {
+        write("b/d/file3.txt", "changed");
+        assertThat(isDirty()).isTrue();
+    }
+
+    @Test
+    public void missingFile() throws Exception {
+        Files.delete(tempDir.toPath().resolve("e/file4.txt"));
+        assertThat(isDirty()).isTrue();
+    }
+
+    @Test
+    public void stagedChanges() throws Exception {
+        git.rm().setCached(true).addFilepattern("a/file2.txt").call();
+        assertThat(isDirty()).isTrue();
+    }
+
+    @Test
+    public void skipWorktreeEntriesAreNotCompared() throws Exception {
+        DirtyDetectorTest.setSkipWorkTree(git.getRepository().getIndexFile().toPath(), "b/c/file1.txt");
+        Files.delete(tempDir.toPath().resolve("b/c/file1.txt"));
+        assertThat(isDirty()).isFalse();
+    }
+
+    @Test
+    public void submoduleChanges() throws Exception {
+        try (Git upstream = Git.init().setDirectory(upstreamDir).call()) {
+            Files.writeString(upstreamDir.toPath().resolve("lib.txt"), "lib");
+            upstream.add().addFilepattern(".").call();
+            upstream.commit().setSign(false).setMessage("lib").call();
+        }
+        git.submoduleAdd().setPath("b/sub").setURI(upstreamDir.toURI().toString()).call().close();
+        git.commit().setSign(false).setMessage("add submodule").call();
+        assertThat(isDirty()).isFalse();
+
+        write("b/sub/lib.txt", "changed");
+        assertThat(isDirty()).isTrue();
+    }
+
+    @Test
+    public void reusesSharedThreads() throws Exception {
+        for (int ii = 0; ii < 5; ii++) {
+            assertThat(isDirty()).isFalse();
+        }
+        assertThat(Thread.getAllStackTraces().keySet())
+                .filteredOn(thread -> thread.getName().startsWith("gittle-dirty-"))
+                .hasSizeLessThanOrEqualTo(2);
+    }
+
+    @Test
+    public void threadsFromProperties() {
+        assertThat(Util.newGitverConfig(Map.of("dirtyCheck", "parallel", "dirtyCheckThreads", "4")))
+                .extracting("dirtyCheckMode", "dirtyCheckThreads")
+                .containsExactly(DirtyCheck.PARALLEL, 4);
+    }
+
+    private boolean isDirty() throws Exception {
+        return new ParallelDirtyDetector(git.getRepository(), 2).isDirty();
+    }
+
+    private void write(String path, String content) throws Exception {
+        Path file = tempDir.toPath().resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+}
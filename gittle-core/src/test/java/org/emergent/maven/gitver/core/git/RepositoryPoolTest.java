@@ -0,0 +1,109 @@
+package org.emergent.maven.gitver.core.git;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.internal.storage.file.FileRepository;
+import org.eclipse.jgit.lib.Repository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RepositoryPoolTest {
+
+    @TempDir
+    File tempDir;
+
+    @AfterEach
+    public void tearDown() {
+        RepositoryPool.clear();
+    }
+
+    @Test
+    public void sharesRepositoryPerGitDir() throws Exception {
+        try (Git git = Git.init().setDirectory(tempDir).call()) {
+            git.commit().setAllowEmpty(true).setSign(false).setMessage("commit").call();
+        }
+        File subDir = new File(tempDir, "module");
+        assertThat(subDir.mkdir()).isTrue();
+
+        Repository first;
+        try (Repository repo = GitExec.getRepository(tempDir)) {
+            first = repo;
+        }
+        try (Repository repo = GitExec.getRepository(subDir)) {
+            assertThat(repo).isSameAs(first);
+            assertThat(repo.resolve("HEAD")).isNotNull();
+        }
+    }
+
+    @Test
+    public void reopensWhenRefsArePacked() throws Exception {
+        try (Git git = Git.init().setDirectory(tempDir).call()) {
+            git.commit().setAllowEmpty(true).setSign(false).setMessage("commit").call();
+        }
+        Repository first;
+        try (Repository repo = GitExec.getRepository(tempDir)) {
+            first = repo;
+            try (Git git = new Git(repo)) {
+                git.tag().setName("v1.0.0").call();
+                git.gc().call();
+            }
+        }
+        try (Repository repo = GitExec.getRepository(tempDir)) {
+            assertThat(repo).isNotSameAs(first);
+            assertThat(repo.findRef("refs/tags/v1.0.0")).isNotNull();
+        }
+    }
+
+    @Test
+    public void closesIdleRepositoryOnceReleased() throws Exception {
+        Git.init().setDirectory(tempDir).call().close();
+        File gitDir = new File(tempDir, ".git");
+        AtomicBoolean closed = new AtomicBoolean();
+        try (Repository repo = RepositoryPool.acquire(gitDir, () -> new TrackedRepository(gitDir, closed))) {
+            RepositoryPool.evictIdle(Duration.ZERO);
+            // still held by this caller
+            assertThat(closed).isFalse();
+            assertThat(repo.resolve("HEAD")).isNull();
+        }
+        assertThat(closed).isTrue();
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() throws Exception {
+        List<AtomicBoolean> closed = new ArrayList<>();
+        for (int ii = 0; ii <= RepositoryPool.MAX_SIZE; ii++) {
+            File gitDir = new File(tempDir, "repo" + ii + "/.git");
+            Git.init().setGitDir(gitDir).setDirectory(gitDir.getParentFile()).call().close();
+            AtomicBoolean flag = new AtomicBoolean();
+            closed.add(flag);
+            RepositoryPool.acquire(gitDir, () -> new TrackedRepository(gitDir, flag)).close();
+        }
+        assertThat(closed.get(0)).isTrue();
+        assertThat(closed.subList(1, closed.size())).allMatch(flag -> !flag.get());
+    }
+
+    private static final class TrackedRepository extends FileRepository {
+
+        private final AtomicBoolean closed;
+
+        private TrackedRepository(File gitDir, AtomicBoolean closed) throws IOException {
+            super(gitDir);
+            this.closed = closed;
+        }
+
+        @Override
+        protected void doClose() {
+            closed.set(true);
+            super.doClose();
+        }
+    }
+}
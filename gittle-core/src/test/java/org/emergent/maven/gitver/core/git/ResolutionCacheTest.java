@@ -0,0 +1,153 @@
+package org.emergent.maven.gitver.core.git;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.util.FileUtils;
+import org.emergent.maven.gitver.core.GitverConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ResolutionCacheTest {
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    public void roundTripsEntries() throws Exception {
+        try (Git git = Git.init().setDirectory(tempDir).call()) {
+            ObjectId head = commit(git);
+            ResolutionCache cache = ResolutionCache.getInstance(git.getRepository());
+            String key = cache.createKey(head, GitverConfig.builder().build());
+            assertThat(cache.get(key)).isEmpty();
+
+            cache.put(key, Map.of("tagged", "1.2.3", "commits", "4"));
+            assertThat(cache.get(key)).contains(Map.of("tagged", "1.2.3", "commits", "4"));
+            assertThat(ResolutionCache.getCacheDir(git.getRepository())).isDirectoryRecursivelyContaining("glob:**.properties");
+        }
+    }
+
+    @Test
+    public void keyTracksHeadTagsAndConfig() throws Exception {
+        try (Git git = Git.init().setDirectory(tempDir).call()) {
+            ObjectId head = commit(git);
+            ResolutionCache cache = ResolutionCache.getInstance(git.getRepository());
+            GitverConfig config = GitverConfig.builder().build();
+            String key = cache.createKey(head, config);
+
+            assertThat(cache.createKey(head, config)).isEqualTo(key);
+            assertThat(cache.createKey(head, config.toBuilder().versionPattern("%t").build())).isNotEqualTo(key);
+
+            git.tag().setName("v1.0.0").call();
+            // the tag refs are stamped once per instance
+            assertThat(cache.createKey(head, config)).isEqualTo(key);
+            cache = ResolutionCache.getInstance(git.getRepository());
+            String tagged = cache.createKey(head, config);
+            assertThat(tagged).isNotEqualTo(key);
+
+            ObjectId next = commit(git);
+            assertThat(cache.createKey(next, config)).isNotEqualTo(tagged);
+        }
+    }
+
+    @Test
+    public void keyTracksMovedLooseTag() throws Exception {
+        try (Git git = Git.init().setDirectory(tempDir).call()) {
+            RevCommit first = commit(git);
+            ObjectId head = commit(git);
+            git.tag().setName("v1.0.0").setObjectId(first).call();
+            ResolutionCache cache = ResolutionCache.getInstance(git.getRepository());
+            GitverConfig config = GitverConfig.builder().build();
+            String key = cache.createKey(head, config);
+
+            git.tag().setName("v1.0.0").setObjectId(git.getRepository().parseCommit(head)).setForceUpdate(true).call();
+            assertThat(ResolutionCache.getInstance(git.getRepository()).createKey(head, config)).isNotEqualTo(key);
+        }
+    }
+
+    @Test
+    public void keyTracksShallowGraftsAndReplaceRefs() throws Exception {
+        try (Git git = Git.init().setDirectory(tempDir).call()) {
+            RevCommit first = commit(git);
+            ObjectId head = commit(git);
+            GitverConfig config = GitverConfig.builder().build();
+            Path gitDir = git.getRepository().getDirectory().toPath();
+            List<String> keys = new ArrayList<>();
+            keys.add(ResolutionCache.getInstance(git.getRepository()).createKey(head, config));
+
+            Files.writeString(gitDir.resolve("shallow"), head.name() + "\n");
+            keys.add(ResolutionCache.getInstance(git.getRepository()).createKey(head, config));
+            Files.createDirectories(gitDir.resolve("info"));
+            Files.writeString(gitDir.resolve("info").resolve("grafts"), head.name() + "\n");
+            keys.add(ResolutionCache.getInstance(git.getRepository()).createKey(head, config));
+            RefUpdate update = git.getRepository().updateRef("refs/replace/" + head.name());
+            update.setNewObjectId(first);
+            update.forceUpdate();
+            keys.add(ResolutionCache.getInstance(git.getRepository()).createKey(head, config));
+            assertThat(keys).doesNotHaveDuplicates();
+        }
+    }
+
+    @Test
+    public void prunesOrphanedTempFiles() throws Exception {
+        try (Git git = Git.init().setDirectory(tempDir).call()) {
+            ObjectId head = commit(git);
+            Path resolvedDir = ResolutionCache.getCacheDir(git.getRepository()).resolve("resolved");
+            Files.createDirectories(resolvedDir);
+            Path orphan = Files.createFile(resolvedDir.resolve("entry.properties123.tmp"));
+            Files.setLastModifiedTime(orphan, FileTime.from(Instant.now().minus(Duration.ofDays(1))));
+            Path writing = Files.createFile(resolvedDir.resolve("entry.properties456.tmp"));
+
+            ResolutionCache cache = ResolutionCache.getInstance(git.getRepository());
+            cache.put(cache.createKey(head, GitverConfig.builder().build()), Map.of("commits", "1"));
+            assertThat(orphan).doesNotExist();
+            assertThat(writing).exists();
+        }
+    }
+
+    @Test
+    public void latestEntryIsDroppedWhenTagsChange() throws Exception {
+        try (Git git = Git.init().setDirectory(tempDir).call()) {
+            ObjectId head = commit(git);
+            ResolutionCache cache = ResolutionCache.getInstance(git.getRepository());
+            GitverConfig config = GitverConfig.builder().build();
+            cache.putLatest(config, Map.of("head", head.getName(), "commits", "1"));
+            assertThat(cache.getLatest(config)).contains(Map.of("head", head.getName(), "commits", "1"));
+            assertThat(cache.getLatest(config.toBuilder().versionPattern("%t").build())).isEmpty();
+
+            git.tag().setName("v1.0.0").call();
+            assertThat(ResolutionCache.getInstance(git.getRepository()).getLatest(config)).isEmpty();
+        }
+    }
+
+    @Test
+    public void servesRepeatedLookupsFromMemory() throws Exception {
+        try (Git git = Git.init().setDirectory(tempDir).call()) {
+            ObjectId head = commit(git);
+            ResolutionCache cache = ResolutionCache.getInstance(git.getRepository());
+            String key = cache.createKey(head, GitverConfig.builder().build());
+            cache.put(key, Map.of("commits", "1"));
+            FileUtils.delete(ResolutionCache.getCacheDir(git.getRepository()).toFile(), FileUtils.RECURSIVE);
+
+            assertThat(cache.get(key)).contains(Map.of("commits", "1"));
+            assertThat(cache.get(cache.createKey(commit(git), GitverConfig.builder().build()))).isEmpty();
+        }
+    }
+
+    private static RevCommit commit(Git git) throws Exception {
+        return git.commit().setAllowEmpty(true).setSign(false).setMessage("commit").call();
+    }
+}
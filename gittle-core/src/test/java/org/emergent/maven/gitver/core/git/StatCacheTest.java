@@ -0,0 +1,66 @@
+package org.emergent.maven.gitver.core.git;
+
+import org.eclipse.jgit.api.Git;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StatCacheTest {
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    public void tracksChangesAcrossBuilds() throws Exception {
+        try (Git git = Git.init().setDirectory(tempDir).call()) {
+            Path file = write("src/Main.java", "class Main {}");
+            git.add().addFilepattern(".").call();
+            git.commit().setSign(false).setMessage("initial").call();
+            StatCache cache = StatCache.getInstance(git.getRepository());
+
+            assertThat(cache.isDirty()).isFalse();
+            assertThat(ResolutionCache.getCacheDir(git.getRepository()).resolve("stat")).isRegularFile();
+            assertThat(cache.isDirty()).isFalse();
+
+            // same size, within the racy window
+            Files.writeString(file, "class Niam {}");
+            assertThat(cache.isDirty()).isTrue();
+
+            Files.writeString(file, "class Main {}");
+            assertThat(cache.isDirty()).isFalse();
+        }
+    }
+
+    @Test
+    public void detectsChangesToSettledFiles() throws Exception {
+        try (Git git = Git.init().setDirectory(tempDir).call()) {
+            Path file = write("README.md", "readme");
+            Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(1, ChronoUnit.HOURS)));
+            git.add().addFilepattern(".").call();
+            git.commit().setSign(false).setMessage("initial").call();
+            StatCache cache = StatCache.getInstance(git.getRepository());
+            assertThat(cache.isDirty()).isFalse();
+            assertThat(cache.isDirty()).isFalse();
+
+            Files.writeString(file, "changed");
+            assertThat(cache.isDirty()).isTrue();
+
+            Files.delete(file);
+            assertThat(cache.isDirty()).isTrue();
+        }
+    }
+
+    private Path write(String path, String content) throws Exception {
+        Path file = tempDir.toPath().resolve(path);
+        Files.createDirectories(file.getParent());
+        return Files.writeString(file, content);
+    }
+}
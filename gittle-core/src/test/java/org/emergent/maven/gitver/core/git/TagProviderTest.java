@@ -0,0 +1,72 @@
+package org.emergent.maven.gitver.core.git;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.emergent.maven.gitver.core.Constants;
+import org.emergent.maven.gitver.core.GitverConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TagProviderTest {
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    public void literalPrefix() {
+        assertThat(TagProvider.getLiteralPrefix(Constants.TAG_PATTERN_DEF)).isEmpty();
+        assertThat(TagProvider.getLiteralPrefix("v([0-9]+\\.[0-9]+\\.[0-9]+)")).isEqualTo("v");
+        assertThat(TagProvider.getLiteralPrefix("^release/v(.*)$")).isEqualTo("release/v");
+        assertThat(TagProvider.getLiteralPrefix("rel\\.v(.*)")).isEqualTo("rel.v");
+        assertThat(TagProvider.getLiteralPrefix("rels?-(.*)")).isEqualTo("rel");
+        assertThat(TagProvider.getLiteralPrefix("a\\d(.*)")).isEqualTo("a");
+        assertThat(TagProvider.getLiteralPrefix("v(.*)|r(.*)")).isEmpty();
+    }
+
+    @Test
+    public void indexesLooseAndPackedTags() throws Exception {
+        try (Git git = Git.init().setDirectory(tempDir).call()) {
+            RevCommit first = commit(git, "first");
+            RevCommit second = commit(git, "second");
+            git.tag().setName("v1.0.0").setObjectId(first).setAnnotated(true).setMessage("one").setSigned(false).call();
+            git.tag().setName("v1.1.0").setObjectId(second).call();
+            git.tag().setName("other-2.0.0").setObjectId(second).call();
+
+            GitverConfig config = GitverConfig.builder().tagNamePattern("v([0-9]+\\.[0-9]+\\.[0-9]+)").build();
+            assertTags(new TagProvider(config, git), first, second);
+
+            git.gc().call();
+            assertTags(new TagProvider(config, git), first, second);
+        }
+    }
+
+    @Test
+    public void treatsAnchorAsTag() throws Exception {
+        try (Git git = Git.init().setDirectory(tempDir).call()) {
+            RevCommit first = commit(git, "first");
+            RevCommit second = commit(git, "second");
+            git.tag().setName("v2.0.0").setObjectId(second).call();
+
+            VersionAnchor anchor = new VersionAnchor(first.abbreviate(10).name(), "1.4.0");
+            TagProvider tagProvider = new TagProvider(GitverConfig.builder().build(), git, anchor);
+            assertThat(tagProvider.getTag(first)).hasValueSatisfying(v -> assertThat(v).hasToString("1.4.0"));
+            assertThat(tagProvider.getTag(second)).hasValueSatisfying(v -> assertThat(v).hasToString("2.0.0"));
+
+            VersionAnchor missing = new VersionAnchor("0123456789abcdef0123456789abcdef01234567", "1.0.0");
+            assertThat(new TagProvider(GitverConfig.builder().build(), git, missing).isTagged(first)).isFalse();
+        }
+    }
+
+    private static void assertTags(TagProvider tagProvider, RevCommit first, RevCommit second) {
+        assertThat(tagProvider.getTag(first)).hasValueSatisfying(v -> assertThat(v).hasToString("1.0.0"));
+        assertThat(tagProvider.getTag(second)).hasValueSatisfying(v -> assertThat(v).hasToString("1.1.0"));
+    }
+
+    private static RevCommit commit(Git git, String message) throws Exception {
+        return git.commit().setAllowEmpty(true).setSign(false).setMessage(message).call();
+    }
+}
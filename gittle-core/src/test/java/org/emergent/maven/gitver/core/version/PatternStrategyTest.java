@@ -1,9 +1,16 @@
 package org.emergent.maven.gitver.core.version;
 
+import org.eclipse.jgit.api.Git;
 import org.emergent.maven.gitver.core.GitverConfig;
+import org.emergent.maven.gitver.core.PropCodec;
 import org.emergent.maven.gitver.core.Util;
+import org.emergent.maven.gitver.core.version.PatternStrategy.PatternToken;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -14,6 +21,9 @@ public class PatternStrategyTest {
 
     private static final HashMap<Object, Object> EMPTY = new HashMap<>();
 
+    @TempDir
+    File tempDir;
+
     @Test
     public void testReleaseSansCommits() {
         PatternStrategy strategy = getPatternStrategy();
@@ -99,6 +109,102 @@ public class PatternStrategyTest {
         assertThat(map).isEqualTo(EMPTY);
     }
 
+    @Test
+    public void testTokensUsedByPattern() {
+        assertThat(PatternStrategy.getTokens("%t-%h"))
+                .containsExactlyInAnyOrder(PatternToken.TAG, PatternToken.HASH_SHORT);
+        assertThat(PatternStrategy.getTokens(PatternStrategy.VERSION_PATTERN_DEF))
+                .hasSize(PatternToken.values().length - 2)
+                .doesNotContain(PatternToken.BRANCH, PatternToken.HASH);
+    }
+
+    @Test
+    public void testDirtyOnlyResolvedWhenUsed() throws Exception {
+        try (Git git = Git.init().setDirectory(tempDir).call()) {
+            Files.writeString(tempDir.toPath().resolve("file.txt"), "one");
+            git.add().addFilepattern(".").call();
+            git.commit().setSign(false).setMessage("commit").call();
+            git.tag().setName("v1.2.3").call();
+            Files.writeString(tempDir.toPath().resolve("file.txt"), "two");
+        }
+        GitverConfig config = GitverConfig.builder().releaseBranches("main").build();
+
+        VersionStrategy tagOnly = PatternStrategy.getPatternStrategy(config.toBuilder().versionPattern("%t-%b").build(), tempDir);
+        assertThat(((ResolvedData) tagOnly).isDirty()).isFalse();
+        assertThat(tagOnly.toVersionString()).isEqualTo("1.2.3-master");
+
+        VersionStrategy withDirty = PatternStrategy.getPatternStrategy(config.toBuilder().versionPattern("%t(.%d)").build(), tempDir);
+        assertThat(withDirty.toVersionString()).isEqualTo("1.2.3.dirty");
+    }
+
+    @Test
+    public void testExportsOnlyResolvedInputs() throws Exception {
+        try (Git git = Git.init().setDirectory(tempDir).call()) {
+            Files.writeString(tempDir.toPath().resolve("file.txt"), "one");
+            git.add().addFilepattern(".").call();
+            git.commit().setSign(false).setMessage("tagged").call();
+            git.tag().setName("v1.2.3").call();
+            git.commit().setAllowEmpty(true).setSign(false).setMessage("second").call();
+            git.commit().setAllowEmpty(true).setSign(false).setMessage("third").call();
+            Files.writeString(tempDir.toPath().resolve("file.txt"), "two");
+        }
+        GitverConfig config = GitverConfig.builder().releaseBranches("main").build();
+
+        Map<String, String> tagAndHash = PatternStrategy.getPatternStrategy(config.toBuilder().versionPattern("%t-%h").build(), tempDir).asMap();
+        assertThat(tagAndHash)
+                .containsEntry("gittle.resolved.tagged", "1.2.3")
+                .containsEntry("gittle.resolved.commits", "2")
+                .containsEntry("gittle.resolved.unresolved", "dirty")
+                .doesNotContainKey("gittle.resolved.dirty");
+
+        Map<String, String> branchOnly = PatternStrategy.getPatternStrategy(config.toBuilder().versionPattern("%b").build(), tempDir).asMap();
+        assertThat(branchOnly)
+                .containsEntry("gittle.resolved.unresolved", "tagged,commits,dirty")
+                .doesNotContainKeys("gittle.resolved.tagged", "gittle.resolved.commits", "gittle.resolved.dirty");
+
+        Map<String, String> all = PatternStrategy.getPatternStrategy(config.toBuilder().versionPattern("%t-%c(.%d)").build(), tempDir).asMap();
+        assertThat(all)
+                .containsEntry("gittle.resolved.dirty", "true")
+                .doesNotContainKey("gittle.resolved.unresolved");
+    }
+
+    @Test
+    public void testFallbackWhenWalkBudgetExceeded() throws Exception {
+        String hash;
+        try (Git git = Git.init().setDirectory(tempDir).call()) {
+            git.commit().setAllowEmpty(true).setSign(false).setMessage("first").call();
+            hash = git.commit().setAllowEmpty(true).setSign(false).setMessage("second").call().getName();
+        }
+        GitverConfig config = GitverConfig.builder().maxCommits(1).releaseBranches("main,stable").build();
+
+        VersionStrategy strategy = PatternStrategy.getPatternStrategy(config, tempDir);
+        assertThat(strategy).isInstanceOf(PatternStrategy.class);
+        assertThat(strategy.toVersionString()).isEqualTo("0.0.0-budget-exceeded-" + hash.substring(0, 8));
+        PatternStrategy fallback = (PatternStrategy) strategy;
+        assertThat(fallback.isWalkBudgetExceeded()).isTrue();
+        assertThat(fallback.getHash()).isEqualTo(hash);
+        assertThat(fallback.getBranch()).isNotEmpty();
+        assertThat(fallback.getReleaseBranches()).isEqualTo("main,stable");
+        assertThat(fallback.getMaxCommits()).isEqualTo(1);
+        assertThat(PropCodec.toPatternStrategy(PropCodec.toProperties(fallback)).getVersion())
+                .isEqualTo(strategy.toVersionString());
+    }
+
+    @Test
+    public void testAnchorStopsWalk() throws Exception {
+        String anchorCommit;
+        try (Git git = Git.init().setDirectory(tempDir).call()) {
+            anchorCommit = git.commit().setAllowEmpty(true).setSign(false).setMessage("first").call().getName();
+            git.commit().setAllowEmpty(true).setSign(false).setMessage("second").call();
+        }
+        GitverConfig config = GitverConfig.builder().versionPattern("%t(-%c)").build();
+        assertThat(PatternStrategy.getPatternStrategy(config, tempDir).toVersionString()).isEqualTo("0.0.0-2");
+
+        Path dotMvn = Files.createDirectories(tempDir.toPath().resolve(".mvn"));
+        Files.writeString(dotMvn.resolve("gittle-anchor.properties"), "commit=" + anchorCommit + "\nversion=1.4.0\n");
+        assertThat(PatternStrategy.getPatternStrategy(config, tempDir).toVersionString()).isEqualTo("1.4.0-1");
+    }
+
     @Test
     public void testXmlOutput() {
         // PatternStrategy strategy = getStrategy();
@@ -0,0 +1,126 @@
+package org.emergent.maven.gitver.core.version;
+
+import org.emergent.maven.gitver.core.Benchmarks;
+import org.emergent.maven.gitver.core.Benchmarks.Result;
+import org.emergent.maven.gitver.core.Util;
+import org.emergent.maven.gitver.core.version.PatternStrategy.PatternToken;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Renders the default version pattern with the cached template, with a template compiled on every
+ * call, and with the regex replacement that {@code PatternStrategy} used before templates.
+ */
+@Tag(Benchmarks.TAG)
+public class PatternTemplateBenchmarkTest {
+
+    private static final int WARMUPS = 200_000;
+    private static final int RUNS = 1_000_000;
+
+    private static final ResolvedData RESOLVED = ResolvedData.builder()
+            .releaseBranches("main")
+            .branch("feature")
+            .hash("c9f54782aa")
+            .tagged("1.2.3")
+            .commits(4)
+            .dirty(true)
+            .build();
+
+    @Test
+    public void cachedTemplateBeatsRegexReplacement() throws Exception {
+        String pattern = PatternStrategy.VERSION_PATTERN_DEF;
+        for (String p : List.of(pattern, "%t(-%B)(-%c)(-%S)(+%h)(.%d)", "v%t-%c", "release")) {
+            assertThat(PatternTemplate.of(p).render(RESOLVED)).isEqualTo(LegacyReplacement.render(p, RESOLVED));
+        }
+
+        Result legacy = Benchmarks.measure("regex replacement", WARMUPS, RUNS,
+                () -> LegacyReplacement.render(pattern, RESOLVED));
+        Result compiled = Benchmarks.measure("template compiled per call", WARMUPS, RUNS,
+                () -> PatternTemplate.compile(pattern).render(RESOLVED));
+        Result cached = Benchmarks.measure("cached template", WARMUPS, RUNS,
+                () -> PatternTemplate.of(pattern).render(RESOLVED));
+
+        assertThat(cached.nanosPerOp()).isLessThan(legacy.nanosPerOp());
+        assertThat(cached.bytesPerOp()).isLessThan(legacy.bytesPerOp());
+        assertThat(cached.bytesPerOp()).isLessThan(compiled.bytesPerOp());
+    }
+
+    /**
+     * The replacement as it was before templates: a token map and a regex built on every call, with
+     * the matches streamed through lists.
+     */
+    private static final class LegacyReplacement {
+
+        static String render(String pattern, ResolvedData resolved) {
+            Map<String, String> codeReplMap = getReplacementMap(resolved);
+            String codes = Arrays.stream(PatternToken.values()).map(PatternToken::code).collect(Collectors.joining());
+            String tokenRegex = Pattern.quote("%") + "[" + codes + "]";
+            Pattern patternx = Pattern.compile("(?<uni>" + tokenRegex + ")"
+                    + "|\\("
+                    + "(?<pre>[^()%]+)?(?<mid>" + tokenRegex + ")(?<suf>[^()%]+)?"
+                    + "\\)");
+            Matcher m = patternx.matcher(pattern);
+            AtomicInteger priorEnd = new AtomicInteger(-1);
+            String result = m.results()
+                    .flatMap(r -> {
+                        String uni = r.group(1);
+                        String pre = r.group(2);
+                        String mid = r.group(3);
+                        String suf = r.group(4);
+                        List<String> res = new LinkedList<>();
+                        if (Util.isNotBlank(uni)) {
+                            res.add(Optional.ofNullable(codeReplMap.get(uni)).orElse(""));
+                        } else if (Util.isNotBlank(mid)) {
+                            String repl = Optional.ofNullable(codeReplMap.get(mid)).orElse("");
+                            if (!repl.isEmpty() && !"0".equals(repl)) {
+                                Stream.of(pre, repl, suf).filter(Util::isNotEmpty).forEach(res::add);
+                            }
+                        }
+                        int priorMatchEnd = priorEnd.getAndUpdate($ -> r.end());
+                        if (priorMatchEnd > -1 && priorMatchEnd < r.start()) {
+                            res.add(0, pattern.substring(priorMatchEnd, r.start()));
+                        }
+                        return res.stream();
+                    })
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.joining());
+            int lastMatchEndIdx = priorEnd.get();
+            return lastMatchEndIdx < 0 ? result : result.concat(pattern.substring(lastMatchEndIdx));
+        }
+
+        private static Map<String, String> getReplacementMap(ResolvedData resolved) {
+            Set<String> releaseSet = resolved.getReleaseBranchesSet();
+            String branch = Optional.ofNullable(resolved.getBranch()).orElse(releaseSet.stream().findFirst().orElse("unknown"));
+            boolean isReleaseBranch = releaseSet.contains(branch);
+            int commits = resolved.getCommits();
+            boolean dirty = resolved.isDirty();
+            boolean omitHash = isReleaseBranch && commits == 0 && !dirty;
+            return Arrays.stream(PatternToken.values()).collect(Collectors.toMap(PatternToken::id, t -> String.valueOf(
+                    switch (t) {
+                        case TAG -> resolved.getTagged();
+                        case COMMIT -> commits;
+                        case SNAPSHOT -> commits > 0 ? "SNAPSHOT" : "";
+                        case BRANCH -> branch;
+                        case DEV_BRANCH -> isReleaseBranch ? "" : branch;
+                        case HASH_SHORT -> omitHash ? "" : resolved.getHashShort();
+                        case HASH -> omitHash ? "" : resolved.getHash();
+                        case DIRTY -> dirty ? "dirty" : "";
+                    })));
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package org.emergent.maven.gitver.core.version;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PatternTemplateTest {
+
+    private static final ResolvedData RESOLVED = ResolvedData.builder()
+            .releaseBranches("main")
+            .branch("feature")
+            .hash("c9f54782aa")
+            .tagged("1.2.3")
+            .commits(0)
+            .build();
+
+    @Test
+    public void rendersTokensAndGroups() {
+        assertThat(render("%t(-%B)(-%c)(-%S)(+%h)(.%d)")).isEqualTo("1.2.3-feature+c9f54782");
+        assertThat(render("%t-%c")).isEqualTo("1.2.3-0");
+        assertThat(render("%t(%x)")).isEqualTo("1.2.3(%x)");
+    }
+
+    @Test
+    public void keepsLegacyQuirks() {
+        // text before the first token is dropped, and a pattern without tokens renders empty
+        assertThat(render("v%t")).isEqualTo("1.2.3");
+        assertThat(render("release")).isEmpty();
+        assertThat(render("%t-final")).isEqualTo("1.2.3-final");
+    }
+
+    @Test
+    public void cachesCompiledPatterns() {
+        assertThat(PatternTemplate.of("%t+%h")).isSameAs(PatternTemplate.of("%t+%h"));
+    }
+
+    @Test
+    public void keepsRecentlyUsedPatternsWhenFull() {
+        PatternTemplate used = PatternTemplate.of("%t-used");
+        for (int i = 0; i < 1000; i++) {
+            PatternTemplate.of("%t-" + i);
+            assertThat(PatternTemplate.of("%t-used")).isSameAs(used);
+        }
+    }
+
+    private static String render(String pattern) {
+        return PatternTemplate.of(pattern).render(RESOLVED);
+    }
+}
@@ -0,0 +1,82 @@
+package org.emergent.maven.gitver.core.version;
+
+import org.eclipse.jgit.api.Git;
+import org.emergent.maven.gitver.core.GitverConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ResolutionRegistryTest {
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    public void resolvesOncePerGitDirAndConfig() throws Exception {
+        try (Git git = Git.init().setDirectory(tempDir).call()) {
+            git.commit().setAllowEmpty(true).setSign(false).setMessage("commit").call();
+            git.tag().setName("v1.2.3").call();
+        }
+        File module = new File(tempDir, "module");
+        assertThat(module.mkdir()).isTrue();
+
+        ConcurrentMap<String, Map<String, String>> store = new ConcurrentHashMap<>();
+        ResolutionRegistry registry = new ResolutionRegistry(store);
+        GitverConfig config = GitverConfig.builder().build();
+
+        VersionStrategy first = registry.getVersionStrategy(tempDir, config);
+        assertThat(first.toVersionString()).isEqualTo(StrategyFactory.getVersionStrategy(tempDir, config).toVersionString());
+        assertThat(registry.getVersionStrategy(module, config)).isEqualTo(first);
+        assertThat(store).hasSize(1);
+
+        VersionStrategy other = registry.getVersionStrategy(tempDir, config.toBuilder().versionPattern("%t+%c").build());
+        assertThat(other.toVersionString()).isEqualTo("1.2.3+0");
+        assertThat(store).hasSize(2);
+
+        VersionStrategy override = registry.getVersionStrategy(tempDir, config.toBuilder().newVersion("9.9.9").build());
+        assertThat(override.toVersionString()).isEqualTo("9.9.9");
+        assertThat(store).hasSize(2);
+    }
+
+    @Test
+    public void sharesStoreThroughSessionData() throws Exception {
+        try (Git git = Git.init().setDirectory(tempDir).call()) {
+            git.commit().setAllowEmpty(true).setSign(false).setMessage("commit").call();
+        }
+        Map<Object, Object> sessionData = new ConcurrentHashMap<>();
+        GitverConfig config = GitverConfig.builder().build();
+
+        VersionStrategy first = ResolutionRegistry.forSessionData((k, s) -> sessionData.computeIfAbsent(k, x -> s.get()))
+                .getVersionStrategy(tempDir, config);
+        assertThat(sessionData).containsOnlyKeys(ResolutionRegistry.SESSION_KEY);
+        assertThat(ResolutionRegistry.forSessionData((k, s) -> sessionData.computeIfAbsent(k, x -> s.get()))
+                .getVersionStrategy(tempDir, config)).isEqualTo(first);
+        assertThat((Map<?, ?>) sessionData.get(ResolutionRegistry.SESSION_KEY)).hasSize(1);
+    }
+
+    @Test
+    public void keepsBudgetFallback() throws Exception {
+        String hash = null;
+        try (Git git = Git.init().setDirectory(tempDir).call()) {
+            for (int i = 0; i < 5; i++) {
+                hash = git.commit().setAllowEmpty(true).setSign(false).setMessage("commit " + i).call().getName();
+            }
+        }
+        ResolutionRegistry registry = new ResolutionRegistry(new ConcurrentHashMap<>());
+        GitverConfig config = GitverConfig.builder().maxCommits(2).build();
+
+        String expected = "0.0.0-budget-exceeded-" + hash.substring(0, 8);
+        assertThat(StrategyFactory.getVersionStrategy(tempDir, config).toVersionString()).isEqualTo(expected);
+        for (int i = 0; i < 2; i++) {
+            VersionStrategy strategy = registry.getVersionStrategy(tempDir, config);
+            assertThat(strategy).isInstanceOf(PatternStrategy.class);
+            assertThat(strategy.toVersionString()).isEqualTo(expected);
+        }
+    }
+}
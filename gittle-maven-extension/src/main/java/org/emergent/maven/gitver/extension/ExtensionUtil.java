@@ -8,10 +8,14 @@ import org.emergent.maven.gitver.core.GitverException;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.Writer;
+import java.io.StringWriter;
 import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
 
 class ExtensionUtil {
     public static final String REVISION = "revision";
@@ -26,12 +30,44 @@ class ExtensionUtil {
         }
     }
 
-    static void writeModelToPom(Model projectModel, Path newPomPath) {
-        try (Writer fileWriter = Files.newBufferedWriter(newPomPath, Charset.defaultCharset())) {
-            MavenXpp3Writer writer = new MavenXpp3Writer();
-            writer.write(fileWriter, projectModel);
+    /**
+     * Writes the model to the given path unless the file already has exactly that content, so that
+     * unchanged poms keep their timestamps. The file is replaced through a rename, so concurrent
+     * readers never see it partially written.
+     *
+     * @return whether the file was written
+     */
+    static boolean writeModelToPom(Model projectModel, Path newPomPath) {
+        try {
+            StringWriter buffer = new StringWriter();
+            new MavenXpp3Writer().write(buffer, projectModel);
+            byte[] content = buffer.toString().getBytes(Charset.defaultCharset());
+            if (hasContent(newPomPath, content)) {
+                return false;
+            }
+            Files.createDirectories(newPomPath.getParent());
+            Path temp = Files.createTempFile(newPomPath.getParent(), newPomPath.getFileName().toString(), ".tmp");
+            try {
+                Files.write(temp, content);
+                try {
+                    Files.move(temp, newPomPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, newPomPath, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            return true;
         } catch (IOException e) {
             throw new GitverException(e.getMessage(), e);
         }
     }
+
+    private static boolean hasContent(Path path, byte[] content) throws IOException {
+        try {
+            return Files.size(path) == content.length && Arrays.equals(Files.readAllBytes(path), content);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
 }
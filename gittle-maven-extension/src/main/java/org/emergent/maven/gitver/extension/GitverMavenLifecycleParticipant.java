@@ -10,26 +10,55 @@ import org.emergent.maven.gitver.core.Util;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
+import java.io.File;
 import java.nio.file.Path;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import static org.emergent.maven.gitver.core.Util.GITVER_POM_XML;
 import static org.emergent.maven.gitver.extension.ExtensionUtil.$_REVISION;
 import static org.emergent.maven.gitver.extension.ExtensionUtil.REVISION;
 
 /**
- * Handles creating the updated pom file, and assigning it to the project model.
+ * Starts the version resolution early, and handles creating the updated pom file and assigning it to
+ * the project model.
  */
 @Named("gittle-lifecycle-participant")
 @Singleton
 public class GitverMavenLifecycleParticipant extends AbstractMavenLifecycleParticipant {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(GitverMavenLifecycleParticipant.class);
+    private static final int MAX_THREADS = 8;
     private final AtomicBoolean initialized = new AtomicBoolean(false);
+    private final VersionResolver versionResolver;
+
+    @Inject
+    public GitverMavenLifecycleParticipant(VersionResolver versionResolver) {
+        this.versionResolver = versionResolver;
+    }
+
+    @Override
+    public void afterSessionStart(MavenSession session) throws MavenExecutionException {
+        super.afterSessionStart(session);
+        if (Util.isDisabled()) {
+            return;
+        }
+        versionResolver.startSession(session);
+        // the first pom read is the one in the base directory, so resolve for that ahead of time
+        Optional.ofNullable(session.getRequest().getBaseDirectory())
+                .map(Path::of)
+                .or(() -> Optional.ofNullable(session.getRequest().getMultiModuleProjectDirectory()).map(File::toPath))
+                .ifPresent(versionResolver::prefetch);
+    }
 
     @Override
     public void afterProjectsRead(MavenSession session) throws MavenExecutionException {
@@ -38,28 +67,57 @@ public class GitverMavenLifecycleParticipant extends AbstractMavenLifecycleParti
     }
 
     private void updateProjects(MavenSession session) {
-        session.getAllProjects().forEach(this::updateProject);
-    }
-
-    private void updateProject(MavenProject project) {
         if (Util.isDisabled()) {
             if (initialized.compareAndSet(false, true)) {
                 LOGGER.debug("{} is disabled", getClass().getSimpleName());
             }
             return;
         }
+        PomLocation pomLocation = PomLocation.getConfigured();
+        Path cacheDir = PomLocation.getCacheDir(session.getRepositorySession().getLocalRepository().getBasedir().toPath());
+        List<MavenProject> projects = session.getAllProjects();
+        int threads = Math.min(projects.size(), Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors()));
+        if (threads <= 1) {
+            projects.forEach(project -> updateProject(project, pomLocation, cacheDir));
+            return;
+        }
+        AtomicInteger counter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "gittle-pom-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> futures = projects.stream()
+                    .<Future<?>>map(project -> executor.submit(() -> updateProject(project, pomLocation, cacheDir)))
+                    .toList();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            LOGGER.error("Failed updating project poms", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void updateProject(MavenProject project, PomLocation pomLocation, Path cacheDir) {
         Model originalModel = project.getModel();
         Path originalPomFile = originalModel.getPomFile().toPath().toAbsolutePath();
-        Path gittlePomFile = originalPomFile.resolveSibling(GITVER_POM_XML);
+        Path gittlePomFile = null;
         try {
+            gittlePomFile = pomLocation.resolve(originalPomFile, cacheDir);
             Model gitverModel = ExtensionUtil.readModelFromPom(originalPomFile);
             copyVersions(originalModel, gitverModel);
-            // Now write the updated model out to a file so we can point the project to it.
-            ExtensionUtil.writeModelToPom(gitverModel, gittlePomFile);
+            // Now write the updated model out to a file so we can point the project to it. Only the pom
+            // file changes, the project basedir stays where the original pom is.
+            boolean written = ExtensionUtil.writeModelToPom(gitverModel, gittlePomFile);
             project.setPomFile(gittlePomFile.toFile());
-            LOGGER.debug("Updated project with newly generated gittle pom {}", gittlePomFile);
+            LOGGER.debug("Updated project with {} gittle pom {}", written ? "newly generated" : "unchanged", gittlePomFile);
         } catch (Exception e) {
-            LOGGER.error("Failed creating new gittle pom at {}", gittlePomFile, e);
+            LOGGER.error("Failed creating new gittle pom for {} at {}", originalPomFile, gittlePomFile, e);
         }
     }
 
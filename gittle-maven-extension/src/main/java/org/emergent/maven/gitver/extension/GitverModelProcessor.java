@@ -16,31 +16,28 @@ import org.emergent.maven.gitver.core.Coordinates;
 import org.emergent.maven.gitver.core.GitverConfig;
 import org.emergent.maven.gitver.core.PropCodec;
 import org.emergent.maven.gitver.core.Util;
-import org.emergent.maven.gitver.core.version.StrategyFactory;
 import org.emergent.maven.gitver.core.version.VersionStrategy;
 
+import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static org.apache.maven.shared.utils.logging.MessageUtils.buffer;
-import static org.emergent.maven.gitver.core.Constants.GITTLE_PREFIX;
 import static org.emergent.maven.gitver.core.Util.join;
 import static org.emergent.maven.gitver.extension.ExtensionUtil.$_REVISION;
 import static org.emergent.maven.gitver.extension.ExtensionUtil.REVISION;
@@ -55,15 +52,18 @@ import static org.emergent.maven.gitver.extension.ExtensionUtil.REVISION;
 @Typed(ModelProcessor.class)
 public class GitverModelProcessor extends DefaultModelProcessor {
 
-    private final Set<Path> relatedPoms = new HashSet<>();
-    private final AtomicReference<VersionStrategy> strategyRef = new AtomicReference<>();
+    private volatile Set<Path> relatedPoms = Set.of();
+    private final AtomicReference<SessionStrategy> strategyRef = new AtomicReference<>();
     private final AtomicBoolean initialized = new AtomicBoolean(false);
 
+    private final VersionResolver versionResolver;
     private final boolean addProperties;
     private final boolean addPlugin;
     private final boolean configurePlugin;
 
-    public GitverModelProcessor() {
+    @Inject
+    public GitverModelProcessor(VersionResolver versionResolver) {
+        this.versionResolver = versionResolver;
         addProperties = true;
         addPlugin = false;
         configurePlugin = false;
@@ -102,19 +102,49 @@ public class GitverModelProcessor extends DefaultModelProcessor {
 
         // This model processor is invoked for every POM on the classpath, including the plugins.
         // The first execution is with the project's pom though. We use strategyRef to avoid processing other poms.
-        VersionStrategy strategy = strategyRef.updateAndGet(curStrat -> {
-            if (curStrat != null) {
-                return curStrat;
-            }
-            return getVersionStrategy(projectModel);
-        });
+        VersionStrategy strategy = getSharedVersionStrategy(projectModel);
 
         processRelatedProjects(projectModel, strategy);
         return projectModel;
     }
 
+    /**
+     * Resolves the strategy exactly once per session. Under {@code mvn -T} the thread that installs the
+     * future resolves it while any others reading poms at the same time wait on that same future. A
+     * new session, as in a warm mvnd daemon, replaces the strategy of the previous one.
+     */
+    private VersionStrategy getSharedVersionStrategy(Model projectModel) {
+        int generation = versionResolver.getSessionGeneration();
+        while (true) {
+            SessionStrategy current = strategyRef.get();
+            if (current == null || current.generation() != generation) {
+                SessionStrategy created = new SessionStrategy(generation, new CompletableFuture<>());
+                if (!strategyRef.compareAndSet(current, created)) {
+                    continue;
+                }
+                try {
+                    VersionStrategy strategy = getVersionStrategy(projectModel);
+                    created.future().complete(strategy);
+                    return strategy;
+                } catch (RuntimeException | Error e) {
+                    // fail the waiting threads, but let a later pom retry as it could before
+                    strategyRef.compareAndSet(created, null);
+                    created.future().completeExceptionally(e);
+                    throw e;
+                }
+            }
+            try {
+                return current.future().join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+    }
+
     private VersionStrategy getVersionStrategy(Model projectModel) {
-        GitverConfig config = loadConfig(projectModel);
         Coordinates extensionGAV = Util.getExtensionCoordinates();
         log.info(buffer().a("--- ")
                 .mojo(extensionGAV)
@@ -122,46 +152,26 @@ public class GitverModelProcessor extends DefaultModelProcessor {
                 .strong("[core-extension]")
                 .a(" ---")
                 .build());
-        File basedir = projectModel.getProjectDirectory();
-        VersionStrategy versionStrategy = StrategyFactory.getVersionStrategy(basedir, config);
+        Path basedir = projectModel.getProjectDirectory().toPath();
+        VersionStrategy versionStrategy = versionResolver.getVersionStrategy(basedir);
         findRelatedProjects(projectModel);
         return versionStrategy;
     }
 
-    private GitverConfig loadConfig(Model projectModel) {
-        Path currentDir = projectModel.getProjectDirectory().toPath().toAbsolutePath();
-        Path extConfigFile = Util.getExtensionPropsFile(currentDir);
-        Map<String, String> fileProps = Util.toStringStringMap(Util.loadPropsFromFile(extConfigFile));
-        log.info("Loaded configuration from file {}:{}", extConfigFile, join(fileProps));
-        Map<String, String> normalized = Util.removePrefix(GITTLE_PREFIX, fileProps);
-        GitverConfig config = Util.newGitverConfig(normalized);
-        if (!fileProps.equals(config.asMap())) {
-            log.warn("Round-trip configuration to properties:{}",
-                    join(Util.appendPrefix(GITTLE_PREFIX, config.asMap())));
-        }
-        return config;
-    }
-
     private void findRelatedProjects(Model model) {
-        Path basedir = model.getProjectDirectory().toPath();
-        log.debug("Finding related projects for {} {}", model.getArtifactId(), basedir);
-        // Add main project absolute path
-        relatedPoms.add(model.getPomFile().toPath());
-        // Find modules
-        List<Path> modulePoms = model.getModules().stream()
-                .map(module -> basedir.resolve(module).resolve("pom.xml"))
-                .toList();
-        log.debug(
-                "Modules found:{}",
-                modulePoms.stream().map(Path::toString).collect(Collectors.joining("\n", "\n", "")));
-        relatedPoms.addAll(modulePoms);
+        Path topPom = ModuleGraph.toRealPath(model.getPomFile().toPath());
+        log.debug("Finding related projects for {} {}", model.getArtifactId(), topPom);
+        // discovered again in each session, as modules may have been added or removed since the last
+        relatedPoms = ModuleGraph.discover(topPom);
     }
 
     private void processRelatedProjects(Model model, VersionStrategy strategy) {
         String versionString = strategy.toVersionString();
 
-        Path modelPomPath =
-                Optional.ofNullable(model.getPomFile()).map(File::toPath).orElse(null);
+        Path modelPomPath = Optional.ofNullable(model.getPomFile())
+                .map(File::toPath)
+                .map(ModuleGraph::toRealPath)
+                .orElse(null);
         if (modelPomPath == null || !relatedPoms.contains(modelPomPath)) {
             return;
         }
@@ -189,8 +199,8 @@ public class GitverModelProcessor extends DefaultModelProcessor {
                 .filter(parent -> !$_REVISION.equals(parent.getVersion()))
                 .filter(parent -> Objects.nonNull(parent.getRelativePath()))
                 .ifPresent(parent -> {
-                    Path parentPath = model.getProjectDirectory().toPath().resolve(parent.getRelativePath());
-                    if (Files.exists(parentPath) && relatedPoms.contains(parentPath.normalize())) {
+                    Path parentPath = ModuleGraph.resolvePom(model.getProjectDirectory().toPath(), parent.getRelativePath());
+                    if (relatedPoms.contains(parentPath)) {
                         log.info("Setting parent {} version to {}", parent, versionString);
                         parent.setVersion(versionString);
                     } else {
@@ -265,6 +275,9 @@ public class GitverModelProcessor extends DefaultModelProcessor {
         }
     }
 
+    private record SessionStrategy(int generation, CompletableFuture<VersionStrategy> future) {
+    }
+
     private static Optional<String> getGroupId(Model projectModel) {
         Optional<String> groupId = Optional.ofNullable(projectModel.getGroupId());
         if (groupId.isEmpty()) {
@@ -0,0 +1,108 @@
+package org.emergent.maven.gitver.extension;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.ModelBase;
+import org.emergent.maven.gitver.core.GitverException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * The poms of a reactor: the top-level pom and every module below it, at any depth. Paths are real
+ * paths, so symlinked or {@code ..}-relative module references match the pom files Maven reads.
+ */
+@Slf4j
+final class ModuleGraph {
+
+    private static final String POM_XML = "pom.xml";
+
+    private static final int MAX_THREADS = 8;
+
+    private ModuleGraph() {
+    }
+
+    /**
+     * Reads the module declarations below the top-level pom, visiting sibling modules in parallel.
+     * Modules declared in profiles are included too, since any of them may be activated. The poms are
+     * read on a pool of their own, since blocking file reads would starve the JVM-wide common pool.
+     */
+    static Set<Path> discover(Path topPom) {
+        Set<Path> poms = ConcurrentHashMap.newKeySet();
+        int threads = Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors());
+        AtomicInteger counter = new AtomicInteger();
+        ForkJoinPool pool = new ForkJoinPool(threads, p -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            thread.setName("gittle-modules-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+        try {
+            pool.invoke(new Visit(toRealPath(topPom), poms));
+        } finally {
+            pool.shutdownNow();
+        }
+        log.debug("Reactor poms under {}: {}", topPom, poms);
+        return Set.copyOf(poms);
+    }
+
+    /**
+     * Resolves a module or parent reference, which may name either a directory or a pom file.
+     */
+    static Path resolvePom(Path basedir, String reference) {
+        Path path = basedir.resolve(reference);
+        return toRealPath(Files.isDirectory(path) ? path.resolve(POM_XML) : path);
+    }
+
+    static Path toRealPath(Path path) {
+        try {
+            return path.toRealPath();
+        } catch (IOException e) {
+            return path.toAbsolutePath().normalize();
+        }
+    }
+
+    private static final class Visit extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Path pom;
+        private final Set<Path> poms;
+
+        private Visit(Path pom, Set<Path> poms) {
+            this.pom = pom;
+            this.poms = poms;
+        }
+
+        @Override
+        protected void compute() {
+            if (!Files.isRegularFile(pom) || !poms.add(pom)) {
+                return;
+            }
+            Model model;
+            try {
+                model = ExtensionUtil.readModelFromPom(pom);
+            } catch (GitverException e) {
+                log.debug("Skipping modules of unreadable pom {}", pom, e);
+                return;
+            }
+            Path basedir = pom.getParent();
+            List<Visit> modules = Stream.concat(Stream.of(model), model.getProfiles().stream())
+                    .map(ModelBase::getModules)
+                    .flatMap(List::stream)
+                    .distinct()
+                    .map(module -> new Visit(resolvePom(basedir, module), poms))
+                    .toList();
+            invokeAll(modules);
+        }
+    }
+}
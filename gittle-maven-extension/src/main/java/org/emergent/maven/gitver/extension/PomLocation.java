@@ -0,0 +1,149 @@
+package org.emergent.maven.gitver.extension;
+
+import org.emergent.maven.gitver.core.GitverException;
+import org.emergent.maven.gitver.core.Util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.emergent.maven.gitver.core.Util.GITVER_POM_XML;
+
+/**
+ * Where the version-substituted pom is written, selected with {@code gittle.extension.pomLocation}
+ * or {@code GV_EXTENSION_POM_LOCATION}.
+ */
+enum PomLocation {
+    /** Next to the original pom, as {@code .gittle.pom.xml}. */
+    BASEDIR {
+        @Override
+        Path resolve(Path originalPomFile, Path cacheDir) {
+            return originalPomFile.resolveSibling(GITVER_POM_XML);
+        }
+    },
+    /**
+     * In a persistent per-user cache, one directory per original pom, so the source tree is never
+     * written to. The cache is {@code .gittle/poms} in the session's local repository unless
+     * {@code gittle.extension.pomCacheDir} (or {@code GV_EXTENSION_POM_CACHE_DIR}) names another
+     * directory, see {@link #getCacheDir}. The directories are private to the user, and entries not
+     * used for {@link #STALE_AFTER} are removed. The build directory is not used, since {@code clean}
+     * would delete the pom before install and deploy get to publish it.
+     */
+    USER_CACHE {
+        @Override
+        Path resolve(Path originalPomFile, Path root) {
+            String key = UUID.nameUUIDFromBytes(originalPomFile.toString().getBytes(StandardCharsets.UTF_8)).toString();
+            try {
+                createPrivateDirectory(root);
+                if (PRUNED.compareAndSet(false, true)) {
+                    pruneStale(root);
+                }
+                Path dir = createPrivateDirectory(root.resolve(key));
+                Path pom = dir.resolve(GITVER_POM_XML);
+                if (Files.exists(pom)) {
+                    // an unchanged pom is not rewritten, so mark it as used for pruning
+                    Files.setLastModifiedTime(pom, FileTime.from(Instant.now()));
+                }
+                return pom;
+            } catch (IOException e) {
+                throw new GitverException(e.getMessage(), e);
+            }
+        }
+    };
+
+    /** How long a generated pom under {@link #USER_CACHE} may go unused before it is removed. */
+    static final Duration STALE_AFTER = Duration.ofDays(30);
+
+    private static final Set<PosixFilePermission> OWNER_ONLY = PosixFilePermissions.fromString("rwx------");
+
+    private static final AtomicBoolean PRUNED = new AtomicBoolean();
+
+    /**
+     * Returns where the generated pom for {@code originalPomFile} goes, with {@code cacheDir} as the
+     * root of the {@link #USER_CACHE}.
+     */
+    abstract Path resolve(Path originalPomFile, Path cacheDir);
+
+    static PomLocation getConfigured() {
+        return Util.getPomLocation().map(PomLocation::from).orElse(BASEDIR);
+    }
+
+    /**
+     * The root of the {@link #USER_CACHE}: the configured directory if there is one, otherwise
+     * {@code .gittle/poms} in the local repository, which follows {@code maven.repo.local} and
+     * {@code MAVEN_USER_HOME}.
+     */
+    static Path getCacheDir(Path localRepository) {
+        return Util.getPomCacheDir()
+                .map(dir -> Path.of(dir).toAbsolutePath())
+                .orElseGet(() -> localRepository.resolve(".gittle").resolve("poms"));
+    }
+
+    static PomLocation from(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new GitverException(String.format("Unknown pomLocation '%s', expected one of %s", value,
+                    Arrays.stream(values()).map(PomLocation::toString).collect(Collectors.joining(", "))));
+        }
+    }
+
+    /**
+     * Creates {@code dir} readable and writable by the owner only, and resets the permissions of an
+     * existing directory, so no other user can add or swap files in it.
+     */
+    static Path createPrivateDirectory(Path dir) throws IOException {
+        if (!FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            return Files.createDirectories(dir);
+        }
+        Files.createDirectories(dir, PosixFilePermissions.asFileAttribute(OWNER_ONLY));
+        if (!Files.getPosixFilePermissions(dir, LinkOption.NOFOLLOW_LINKS).equals(OWNER_ONLY)) {
+            Files.setPosixFilePermissions(dir, OWNER_ONLY);
+        }
+        return dir;
+    }
+
+    /** Removes the per-pom directories under {@code root} whose pom has not been used recently. */
+    static void pruneStale(Path root) throws IOException {
+        Instant cutoff = Instant.now().minus(STALE_AFTER);
+        try (Stream<Path> dirs = Files.list(root)) {
+            for (Path dir : dirs.toList()) {
+                if (Files.getLastModifiedTime(dir, LinkOption.NOFOLLOW_LINKS).toInstant().isAfter(cutoff)) {
+                    continue;
+                }
+                Path pom = dir.resolve(GITVER_POM_XML);
+                if (Files.exists(pom) && Files.getLastModifiedTime(pom).toInstant().isAfter(cutoff)) {
+                    continue;
+                }
+                try (Stream<Path> files = Files.walk(dir)) {
+                    for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                        Files.deleteIfExists(file);
+                    }
+                } catch (IOException e) {
+                    // another build may be using it, try again next time
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,134 @@
+package org.emergent.maven.gitver.extension;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.LegacySupport;
+import org.emergent.maven.gitver.core.GitverConfig;
+import org.emergent.maven.gitver.core.Util;
+import org.emergent.maven.gitver.core.version.ResolutionRegistry;
+import org.emergent.maven.gitver.core.version.VersionStrategy;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.lang.ref.WeakReference;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.emergent.maven.gitver.core.Constants.GITTLE_PREFIX;
+import static org.emergent.maven.gitver.core.Util.join;
+
+/**
+ * Resolves the version strategy for a project directory, optionally ahead of time.
+ * <p>
+ * The lifecycle participant calls {@link #prefetch} as soon as the session starts, so the history
+ * walk runs in the background while Maven is still reading and interpolating poms. The model
+ * processor then only waits for whatever part of it is left. Resolutions go through the session's
+ * {@link ResolutionRegistry}, which the plugin mojos use as well.
+ */
+@Slf4j
+@Named
+@Singleton
+public class VersionResolver {
+
+    private final ConcurrentMap<Path, CompletableFuture<VersionStrategy>> prefetched = new ConcurrentHashMap<>();
+    private final LegacySupport legacySupport;
+    private final AtomicInteger generation = new AtomicInteger();
+    private volatile WeakReference<MavenSession> session = new WeakReference<>(null);
+    private volatile ResolutionRegistry registry = new ResolutionRegistry(new ConcurrentHashMap<>());
+
+    @Inject
+    public VersionResolver(LegacySupport legacySupport) {
+        this.legacySupport = legacySupport;
+    }
+
+    /**
+     * Switches to the resolution registry of a new session. Under mvnd or an IDE this singleton
+     * outlives each build, so nothing resolved for an earlier session is reused.
+     *
+     * @return the generation of the session, which changes with every new session
+     */
+    public synchronized int startSession(MavenSession newSession) {
+        if (newSession != null && session.get() != newSession) {
+            session = new WeakReference<>(newSession);
+            prefetched.clear();
+            registry = ResolutionRegistry.forSessionData(newSession.getRepositorySession().getData()::computeIfAbsent);
+            generation.incrementAndGet();
+        }
+        return generation.get();
+    }
+
+    /**
+     * Returns the generation of the current session, switching to it first if Maven started a new
+     * one without going through the lifecycle participant.
+     */
+    public int getSessionGeneration() {
+        MavenSession current = legacySupport.getSession();
+        if (current != null && current != session.get()) {
+            return startSession(current);
+        }
+        return generation.get();
+    }
+
+    /**
+     * Starts resolving the strategy for the directory on a background thread.
+     */
+    public void prefetch(Path projectDir) {
+        Path key = normalize(projectDir);
+        prefetched.computeIfAbsent(key, dir -> {
+            log.debug("Prefetching version for {}", dir);
+            return CompletableFuture.supplyAsync(() -> resolve(dir), runnable -> {
+                Thread thread = new Thread(runnable, "gittle-prefetch");
+                thread.setDaemon(true);
+                thread.setContextClassLoader(VersionResolver.class.getClassLoader());
+                thread.start();
+            });
+        });
+    }
+
+    /**
+     * Returns the strategy for the directory, waiting for a prefetch of it if one was started.
+     */
+    public VersionStrategy getVersionStrategy(Path projectDir) {
+        getSessionGeneration();
+        CompletableFuture<VersionStrategy> future = prefetched.remove(normalize(projectDir));
+        if (future == null) {
+            return resolve(normalize(projectDir));
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private VersionStrategy resolve(Path projectDir) {
+        GitverConfig config = loadConfig(projectDir);
+        return registry.getVersionStrategy(projectDir.toFile(), config);
+    }
+
+    private static GitverConfig loadConfig(Path currentDir) {
+        Path extConfigFile = Util.getExtensionPropsFile(currentDir);
+        Map<String, String> fileProps = Util.toStringStringMap(Util.loadPropsFromFile(extConfigFile));
+        log.info("Loaded configuration from file {}:{}", extConfigFile, join(fileProps));
+        Map<String, String> normalized = Util.removePrefix(GITTLE_PREFIX, fileProps);
+        GitverConfig config = Util.newGitverConfig(normalized);
+        if (!fileProps.equals(config.asMap())) {
+            log.warn("Round-trip configuration to properties:{}",
+                    join(Util.appendPrefix(GITTLE_PREFIX, config.asMap())));
+        }
+        return config;
+    }
+
+    private static Path normalize(Path projectDir) {
+        return projectDir.toAbsolutePath().normalize();
+    }
+}
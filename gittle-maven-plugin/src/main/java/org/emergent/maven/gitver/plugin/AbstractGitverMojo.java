@@ -2,6 +2,7 @@ package org.emergent.maven.gitver.plugin;
 
 import lombok.Getter;
 import lombok.Setter;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.Parameter;
@@ -11,7 +12,7 @@ import org.emergent.maven.gitver.core.GitverConfig;
 import org.emergent.maven.gitver.core.GitverException;
 import org.emergent.maven.gitver.core.Util;
 import org.emergent.maven.gitver.core.git.GitUtil;
-import org.emergent.maven.gitver.core.version.StrategyFactory;
+import org.emergent.maven.gitver.core.version.ResolutionRegistry;
 import org.emergent.maven.gitver.core.version.VersionStrategy;
 
 @Getter
@@ -30,6 +31,9 @@ public abstract class AbstractGitverMojo extends org.apache.maven.plugin.Abstrac
     @Parameter(defaultValue = "${project}", required = true, readonly = true)
     protected MavenProject mavenProject;
 
+    @Parameter(defaultValue = "${session}", required = true, readonly = true)
+    protected MavenSession mavenSession;
+
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
         try {
@@ -53,7 +57,9 @@ public abstract class AbstractGitverMojo extends org.apache.maven.plugin.Abstrac
     }
 
     protected VersionStrategy getVersionStrategy() {
-        return StrategyFactory.getVersionStrategy(mavenProject.getBasedir(), getConfig());
+        // shares resolutions with the extension and the other mojos of this session
+        return ResolutionRegistry.forSessionData(mavenSession.getRepositorySession().getData()::computeIfAbsent)
+                .getVersionStrategy(mavenProject.getBasedir(), getConfig());
     }
 
     protected String replaceTokens(String pattern, VersionStrategy versionStrategy) {
@@ -11,7 +11,6 @@ import org.emergent.maven.gitver.core.Constants;
 import org.emergent.maven.gitver.core.Coordinates;
 import org.emergent.maven.gitver.core.GitverConfig;
 import org.emergent.maven.gitver.core.Util;
-import org.emergent.maven.gitver.core.version.StrategyFactory;
 import org.emergent.maven.gitver.core.version.VersionStrategy;
 
 import java.util.Map;
@@ -62,10 +61,6 @@ public class PropsMojo extends AbstractGitverMojo {
         mavenProject.getProperties().putAll(properties);
     }
 
-    protected VersionStrategy getVersionStrategy() {
-        return StrategyFactory.getVersionStrategy(mavenProject.getBasedir(), getConfig());
-    }
-
     @Override
     public GitverConfig getConfig() {
         Properties loaded = Util.loadProperties(mavenProject.getBasedir().toPath());